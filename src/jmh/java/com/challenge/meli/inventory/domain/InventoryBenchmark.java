@@ -0,0 +1,47 @@
+package com.challenge.meli.inventory.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State transitions of a single {@link Inventory} row, without persistence. Each benchmark
+ * pairs a transition with its inverse so the counters stay in range.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InventoryBenchmark {
+
+    private Inventory inventory;
+
+    @Setup
+    public void setUp() {
+        inventory = new Inventory("SKU001", "STORE001", 1_000_000);
+    }
+
+    @Benchmark
+    public Inventory reserveAndRelease() {
+        inventory.reserve(1);
+        inventory.releaseReservation(1);
+        return inventory;
+    }
+
+    @Benchmark
+    public Inventory reserveAndConfirmSale() {
+        inventory.reserve(1);
+        inventory.confirmSale(1);
+        inventory.adjustStock(1);
+        return inventory;
+    }
+
+    @Benchmark
+    public Inventory adjustStock() {
+        inventory.adjustStock(1);
+        inventory.adjustStock(-1);
+        return inventory;
+    }
+}
@@ -0,0 +1,48 @@
+package com.challenge.meli.inventory.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of an {@link InventoryAvailabilityResponse} with 1, 20 and 200 stores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailabilitySerializationBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int stores;
+
+    private ObjectMapper objectMapper;
+    private InventoryAvailabilityResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryAvailabilityResponse.StoreStockDto> availability = new ArrayList<>(stores);
+        for (int i = 0; i < stores; i++) {
+            availability.add(new InventoryAvailabilityResponse.StoreStockDto("STORE%03d".formatted(i), "Tienda " + i,
+                    new InventoryAvailabilityResponse.LocationDto(-33.4489, -70.6693, "Av. Providencia " + i + ", Santiago"),
+                    new InventoryAvailabilityResponse.StockInfoDto(40, 5, 45), now, "HIGH", now.plusMinutes(5)));
+        }
+        response = new InventoryAvailabilityResponse("SKU001", availability,
+                new InventoryAvailabilityResponse.MetadataDto("request-id", now, false));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,67 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.Store;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.StoreRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InventoryService#getAvailability(String, String)} served from the availability cache
+ * and loaded from H2 (cache evicted before each call), and the DTO mapping on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailabilityBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private AvailabilityCache availabilityCache;
+    private Inventory inventory;
+    private Store store;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        inventoryService = context.getBean(InventoryService.class);
+        availabilityCache = context.getBean(AvailabilityCache.class);
+        inventory = context.getBean(InventoryRepository.class).findByProductIdAndStoreId("SKU001", "STORE001").orElseThrow();
+        store = context.getBean(StoreRepository.class).findById("STORE001").orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InventoryAvailabilityResponse cachedAllStores() {
+        return inventoryService.getAvailability("SKU001", null);
+    }
+
+    @Benchmark
+    public InventoryAvailabilityResponse uncachedAllStores() {
+        availabilityCache.invalidate("SKU001");
+        return inventoryService.getAvailability("SKU001", null);
+    }
+
+    @Benchmark
+    public InventoryAvailabilityResponse uncachedOneStore() {
+        availabilityCache.invalidate("SKU001");
+        return inventoryService.getAvailability("SKU001", "STORE001");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public InventoryAvailabilityResponse.StoreStockDto mapToStoreStockDto() {
+        return inventoryService.mapToStoreStockDto(inventory, store, null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the application against its embedded H2 database, on a random port, for the
+ * benchmarks that need real services.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(ChallengeApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN",
+                        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF")
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.Product;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.dto.ReservationResponse;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservations against embedded H2 with 1, 8 and 64 threads, either all on one SKU ({@code hot})
+ * or spread over {@link #SKUS} SKUs ({@code spread}), through {@link InventoryService#reserveProduct}
+ * ({@code locking}) or {@link InventoryService#reserveConditionally} ({@code conditional}). Failed
+ * reservations (lock timeouts, serialization failures) are reported as the {@code failed}
+ * counter instead of aborting the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationBenchmark {
+
+    private static final int SKUS = 64;
+    private static final int STOCK = 100_000_000;
+
+    @State(Scope.Benchmark)
+    public static class Application {
+
+        @Param({"hot", "spread"})
+        public String distribution;
+
+        @Param({"locking", "conditional"})
+        public String strategy;
+
+        private ConfigurableApplicationContext context;
+        private InventoryService inventoryService;
+        private final List<String> productIds = new ArrayList<>();
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkApplication.start("inventory.reservation.strategy=" + strategy);
+            inventoryService = context.getBean(InventoryService.class);
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+            InventoryRepository inventoryRepository = context.getBean(InventoryRepository.class);
+
+            int skus = "hot".equals(distribution) ? 1 : SKUS;
+            for (int i = 0; i < skus; i++) {
+                String productId = "BENCH-%03d".formatted(i);
+                productRepository.save(new Product(productId, "Benchmark product " + i, null, 1.0));
+                inventoryRepository.save(new Inventory(productId, "STORE001", STOCK));
+                productIds.add(productId);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+
+        private ReservationResponse reserve() {
+            String productId = productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+            ReservationRequest request = new ReservationRequest(productId, "STORE001", 1, "bench", null, null);
+            return inventoryService.usesConditionalUpdates()
+                    ? inventoryService.reserveConditionally(request)
+                    : inventoryService.reserveProduct(request);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long reserved;
+        public long failed;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReservationResponse reserve1Thread(Application application, Outcomes outcomes) {
+        return reserve(application, outcomes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReservationResponse reserve8Threads(Application application, Outcomes outcomes) {
+        return reserve(application, outcomes);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public ReservationResponse reserve64Threads(Application application, Outcomes outcomes) {
+        return reserve(application, outcomes);
+    }
+
+    private static ReservationResponse reserve(Application application, Outcomes outcomes) {
+        try {
+            ReservationResponse response = application.reserve();
+            outcomes.reserved++;
+            return response;
+        } catch (RuntimeException e) {
+            outcomes.failed++;
+            return null;
+        }
+    }
+}
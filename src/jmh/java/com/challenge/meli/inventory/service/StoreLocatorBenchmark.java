@@ -0,0 +1,48 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Store;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-store lookups on the {@link StoreLocator} KD-tree, without the availability read.
+ * Stores are scattered over a country-sized box and the filter keeps roughly half of them, as
+ * when a product is out of stock in many pickup points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StoreLocatorBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int stores;
+
+    private StoreLocator.Index index;
+    private boolean[] inStock;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        List<Store> locations = new ArrayList<>(stores);
+        inStock = new boolean[stores];
+        for (int i = 0; i < stores; i++) {
+            locations.add(new Store("STORE" + i, "Store " + i, "Address " + i,
+                    -56 + random.nextDouble() * 38, -76 + random.nextDouble() * 9));
+            inStock[i] = random.nextBoolean();
+        }
+        index = new StoreLocator.Index(locations);
+    }
+
+    @Benchmark
+    public int[] nearestTen() {
+        return index.nearest(-56 + random.nextDouble() * 38, -76 + random.nextDouble() * 9, 50, 10, point -> inStock[point]);
+    }
+}
@@ -0,0 +1,127 @@
+package com.challenge.meli.inventory.config;
+
+import com.challenge.meli.inventory.exception.AdmissionRejectedException;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the database. Transactional service methods take a permit of a
+ * fair semaphore sized to the connection pool before their transaction starts, so with virtual
+ * threads thousands of requests wait here, cheaply and in order, instead of each opening a
+ * transaction and queueing on Hikari or on row locks. Requests that find no free permit and
+ * {@code inventory.admission.max-queue} waiters, or wait longer than
+ * {@code inventory.admission.timeout-ms}, are rejected with {@link AdmissionRejectedException}.
+ * <p>
+ * Runs inside {@code @Retryable} (backoff sleeps hold no permit) and outside
+ * {@code @Transactional}. Only calls made while serving an HTTP request are admitted; calls from
+ * the application's own threads (engine partitions, combiner workers, the expiry wheel and other
+ * scheduled jobs) pass through, as rejecting them would lose work nobody retries. Nested calls on
+ * a thread that already holds a permit pass through too. Enabled by default when
+ * {@code spring.threads.virtual.enabled} is set.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class DatabaseAdmission {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseAdmission.class);
+
+    private static final ThreadLocal<Boolean> HOLDING = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int permits;
+    private final int maxQueue;
+    private final long timeoutMs;
+    private final Semaphore semaphore;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public DatabaseAdmission(DataSource dataSource, MeterRegistry registry,
+                             @Value("${inventory.admission.enabled:${spring.threads.virtual.enabled:false}}") Boolean enabled,
+                             @Value("${inventory.admission.permits:0}") Integer permits,
+                             @Value("${inventory.admission.max-queue:5000}") Integer maxQueue,
+                             @Value("${inventory.admission.timeout-ms:5000}") Long timeoutMs) {
+        this.enabled = enabled;
+        this.permits = permits > 0 ? permits : poolSize(dataSource);
+        this.maxQueue = maxQueue;
+        this.timeoutMs = timeoutMs;
+        this.semaphore = new Semaphore(this.permits, true);
+
+        this.waitTimer = Timer.builder("inventory.admission.wait")
+                .description("Time spent waiting for a database admission permit")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = registry.counter("inventory.admission.rejected");
+        Gauge.builder("inventory.admission.queue", semaphore, Semaphore::getQueueLength)
+                .description("Requests waiting for a database admission permit")
+                .register(registry);
+        Gauge.builder("inventory.admission.in.use", semaphore, s -> this.permits - s.availablePermits())
+                .register(registry);
+
+        if (enabled) {
+            logger.info("Database admission control enabled with {} permits", this.permits);
+        }
+    }
+
+    @Around("@annotation(org.springframework.transaction.annotation.Transactional) "
+            + "&& execution(public * com.challenge.meli.inventory.service..*(..)) "
+            + "|| execution(* com.challenge.meli.inventory.service.InventoryService.getVersionedAvailability(..))")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled || HOLDING.get() != null || RequestContextHolder.getRequestAttributes() == null) {
+            return joinPoint.proceed();
+        }
+
+        long start = System.nanoTime();
+        // a free permit is taken at once, without joining the queue
+        boolean acquired = semaphore.tryAcquire(0, TimeUnit.MILLISECONDS);
+        if (!acquired) {
+            if (semaphore.getQueueLength() >= maxQueue) {
+                rejected.increment();
+                throw new AdmissionRejectedException("Too many requests waiting for the database", 1);
+            }
+            acquired = semaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+            throw new AdmissionRejectedException("Timed out waiting for the database", 1);
+        }
+
+        HOLDING.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            HOLDING.remove();
+            semaphore.release();
+        }
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not read the connection pool size: {}", e.getMessage());
+        }
+        return 10;
+    }
+}
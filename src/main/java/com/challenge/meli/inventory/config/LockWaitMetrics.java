@@ -0,0 +1,55 @@
+package com.challenge.meli.inventory.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the pessimistic-lock reads of inventory rows and buckets as
+ * {@code inventory.lock.wait}, tagged by the locked table. Most of that time is spent waiting
+ * for the row lock, so its histogram shows how long writers queue on hot rows.
+ */
+@Aspect
+@Component
+public class LockWaitMetrics {
+
+    private final Timer inventoryLockWait;
+    private final Timer bucketLockWait;
+
+    public LockWaitMetrics(MeterRegistry registry) {
+        this.inventoryLockWait = lockWaitTimer(registry, "inventory");
+        this.bucketLockWait = lockWaitTimer(registry, "inventory_buckets");
+    }
+
+    @Around("execution(* com.challenge.meli.inventory.repository.InventoryRepository.findByProductIdAndStoreIdWithLock(..))")
+    public Object timeInventoryLock(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(inventoryLockWait, joinPoint);
+    }
+
+    @Around("execution(* com.challenge.meli.inventory.repository.InventoryBucketRepository.*WithLock(..))")
+    public Object timeBucketLock(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(bucketLockWait, joinPoint);
+    }
+
+    private static Object time(Timer timer, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer lockWaitTimer(MeterRegistry registry, String table) {
+        return Timer.builder("inventory.lock.wait")
+                .description("Time spent acquiring pessimistic row locks")
+                .tag("table", table)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
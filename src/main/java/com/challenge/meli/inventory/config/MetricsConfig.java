@@ -0,0 +1,20 @@
+package com.challenge.meli.inventory.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables {@code @Timed} on service methods. The remaining meters come from
+ * {@link LockWaitMetrics}, {@link RetryConfig}, {@link SchedulingConfig}, the
+ * {@code MeterBinder} services and Spring Boot's own binders (HikariCP, resilience4j, JVM).
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
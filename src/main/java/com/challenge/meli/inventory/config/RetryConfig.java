@@ -1,9 +1,50 @@
 package com.challenge.meli.inventory.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
 
+/**
+ * Retry advice runs outside {@link DatabaseAdmission}, which runs outside the transaction.
+ */
 @Configuration
-@EnableRetry
+@EnableRetry(order = Ordered.LOWEST_PRECEDENCE - 2)
 public class RetryConfig {
+
+    /**
+     * Counts {@code @Retryable} retries ({@code inventory.retry.attempts}) and calls that still
+     * failed after retrying ({@code inventory.retry.exhausted}), tagged by method. A first
+     * attempt that fails with a non-retryable exception (e.g. insufficient stock) counts as
+     * neither. Listener beans are applied to every {@code @Retryable} method.
+     */
+    @Bean
+    public RetryListener retryMetricsListener(MeterRegistry registry) {
+        return new RetryListener() {
+            @Override
+            public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                int retries = throwable == null ? context.getRetryCount() : context.getRetryCount() - 1;
+                if (retries <= 0) {
+                    return;
+                }
+                String method = method(callback);
+                registry.counter("inventory.retry.attempts", "method", method).increment(retries);
+                if (throwable != null) {
+                    registry.counter("inventory.retry.exhausted", "method", method,
+                            "exception", throwable.getClass().getSimpleName()).increment();
+                }
+            }
+        };
+    }
+
+    private static String method(RetryCallback<?, ?> callback) {
+        return callback instanceof MethodInvocationRetryCallback<?, ?> invocation
+                ? invocation.getInvocation().getMethod().getName()
+                : "unknown";
+    }
 }
@@ -1,22 +1,105 @@
 package com.challenge.meli.inventory.config;
 
+import com.challenge.meli.inventory.service.IdempotencyService;
 import com.challenge.meli.inventory.service.InventoryService;
+import com.challenge.meli.inventory.service.InventorySnapshot;
+import com.challenge.meli.inventory.service.ReservationEngine;
+import com.challenge.meli.inventory.service.ReservationExpiryWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @EnableScheduling
 public class SchedulingConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SchedulingConfig.class);
+
     private final InventoryService inventoryService;
+    private final ReservationEngine reservationEngine;
+    private final ReservationExpiryWheel expiryWheel;
+    private final IdempotencyService idempotencyService;
+    private final InventorySnapshot inventorySnapshot;
+    private final Timer expiryLag;
+    private final Counter expiryFailures;
 
-    public SchedulingConfig(InventoryService inventoryService) {
+    public SchedulingConfig(InventoryService inventoryService, ReservationEngine reservationEngine,
+                            ReservationExpiryWheel expiryWheel, IdempotencyService idempotencyService,
+                            InventorySnapshot inventorySnapshot, MeterRegistry registry) {
         this.inventoryService = inventoryService;
+        this.reservationEngine = reservationEngine;
+        this.expiryWheel = expiryWheel;
+        this.idempotencyService = idempotencyService;
+        this.inventorySnapshot = inventorySnapshot;
+        this.expiryLag = Timer.builder("inventory.expiry.lag")
+                .description("Delay between a reservation's expiresAt and its release")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.expiryFailures = registry.counter("inventory.expiry.failures");
+    }
+
+    /**
+     * Releases the reservations the wheel reports as due. {@code inventory.expiry.lag} records
+     * how far behind their deadline they were released, i.e. the expiry backlog. A batch that
+     * fails goes back into the wheel to be retried.
+     */
+    @Scheduled(fixedRateString = "${inventory.expiry.tick-ms:100}")
+    public void releaseDueReservations() {
+        for (List<ReservationExpiryWheel.Expiration> batch : expiryWheel.advance()) {
+            ReservationExpiryWheel.Expiration first = batch.get(0);
+            List<String> reservationIds = batch.stream().map(ReservationExpiryWheel.Expiration::reservationId).toList();
+            try {
+                if (reservationEngine.isEnabled()) {
+                    reservationEngine.expireReservations(reservationIds);
+                } else {
+                    inventoryService.expireReservations(first.productId(), first.storeId(), reservationIds);
+                }
+                long now = System.currentTimeMillis();
+                batch.forEach(expiration -> expiryLag.record(Math.max(0, now - expiration.deadline()), TimeUnit.MILLISECONDS));
+            } catch (Exception e) {
+                expiryFailures.increment(batch.size());
+                expiryWheel.retry(batch);
+                logger.error("Error expiring {} reservations of {}:{}, will retry: {}", batch.size(),
+                        first.productId(), first.storeId(), e.getMessage());
+            }
+        }
     }
 
-    @Scheduled(fixedRate = 300000)
+    /**
+     * Safety net for reservations the wheel does not know about (created by another instance,
+     * or whose release failed).
+     */
+    @Scheduled(fixedRateString = "${inventory.expiry.sweep-interval-ms:300000}")
     public void cleanupExpiredReservations(){
-        inventoryService.cleanupExpiredReservation();
+        if (reservationEngine.isEnabled()) {
+            reservationEngine.cleanupExpiredReservation();
+        } else {
+            inventoryService.cleanupExpiredReservation();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${inventory.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredIdempotencyKeys() {
+        try {
+            idempotencyService.purgeExpired();
+        } catch (Exception e) {
+            logger.error("Error purging expired idempotency keys: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.snapshot.interval-ms:300000}",
+            initialDelayString = "${inventory.snapshot.interval-ms:300000}")
+    public void writeSnapshot() {
+        if (inventorySnapshot.isEnabled()) {
+            inventorySnapshot.checkpoint();
+        }
     }
 }
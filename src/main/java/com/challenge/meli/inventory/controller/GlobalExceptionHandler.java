@@ -1,26 +1,35 @@
 package com.challenge.meli.inventory.controller;
 
+import com.challenge.meli.inventory.exception.AdmissionRejectedException;
+import com.challenge.meli.inventory.exception.EngineUnavailableException;
+import com.challenge.meli.inventory.exception.IdempotencyKeyReusedException;
 import com.challenge.meli.inventory.exception.InsufficientStockException;
 import com.challenge.meli.inventory.exception.InventoryServiceException;
 import com.challenge.meli.inventory.exception.ReservationExpiredException;
 import com.challenge.meli.inventory.exception.ReservationNotFoundException;
+import com.challenge.meli.inventory.exception.SkuOverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
-@RestController
+@RestControllerAdvice
 public class GlobalExceptionHandler {
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
@@ -36,7 +45,37 @@ public class GlobalExceptionHandler {
         problem.setProperty("availableQuantity", exception.getAvailableQuantity());
         problem.setProperty("timestamp", LocalDateTime.now());
 
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(problem);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CONFLICT);
+        if (exception.getRetryAfterSeconds() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        }
+        return response.body(problem);
+    }
+
+    @ExceptionHandler(SkuOverloadedException.class)
+    public ResponseEntity<ProblemDetail> handleSkuOverloaded(SkuOverloadedException exception, WebRequest request){
+        logger.debug("Reservation shed: {}", exception.getMessage());
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, exception.getMessage());
+        problem.setTitle("Too Many Reservations");
+        problem.setProperty("productId", exception.getProductId());
+        problem.setProperty("storeId", exception.getStoreId());
+        problem.setProperty("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(problem);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ProblemDetail> handleIdempotencyKeyReused(IdempotencyKeyReusedException exception, WebRequest request){
+        logger.warn("Idempotency key reused: {}", exception.getMessage());
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage());
+        problem.setTitle("Idempotency Key Reused");
+        problem.setProperty("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(problem);
     }
 
     @ExceptionHandler(ReservationNotFoundException.class)
@@ -61,6 +100,32 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.GONE).body(problem);
     }
 
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ProblemDetail> handleAdmissionRejected(AdmissionRejectedException exception, WebRequest request){
+        logger.warn("Request rejected by admission control: {}", exception.getMessage());
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        problem.setTitle("Service Overloaded");
+        problem.setProperty("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(problem);
+    }
+
+    @ExceptionHandler(EngineUnavailableException.class)
+    public ResponseEntity<ProblemDetail> handleEngineUnavailable(EngineUnavailableException exception, WebRequest request){
+        logger.warn("Reservation engine unavailable: {}", exception.getMessage());
+
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        problem.setTitle("Reservation Engine Unavailable");
+        problem.setProperty("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(problem);
+    }
+
     @ExceptionHandler(InventoryServiceException.class)
     public ResponseEntity<ProblemDetail> handleInventoryService(InventoryServiceException exception, WebRequest request){
         logger.warn("Inventory service error: {}", exception.getMessage());
@@ -72,16 +137,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(problem);
     }
 
-    @ExceptionHandler(OptimisticLockingFailureException.class)
-    public ResponseEntity<ProblemDetail> handleOptimisticLocking(OptimisticLockingFailureException exception, WebRequest request){
-        logger.warn("Optimistic locking failure: {}", exception.getMessage());
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ProblemDetail> handleConcurrencyFailure(ConcurrencyFailureException exception, WebRequest request){
+        logger.warn("Concurrency failure: {}", exception.getMessage());
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT,
                 "Resource was modified by another transaction. Please retry.");
         problem.setTitle("Concurrent Modification");
         problem.setProperty("timestamp", LocalDateTime.now());
 
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(problem);
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(problem);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -101,8 +168,28 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(problem);
     }
 
+    @ExceptionHandler({HttpMessageNotReadableException.class, TypeMismatchException.class})
+    public ResponseEntity<ProblemDetail> handleMalformedRequest(Exception exception, WebRequest request) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Malformed request");
+        problem.setTitle("Validation Error");
+        problem.setProperty("timestamp", LocalDateTime.now());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(problem);
+    }
+
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public void handleClientGone(AsyncRequestNotUsableException exception) {
+        // e.g. an availability stream subscriber disconnected: there is no one to respond to
+        logger.debug("Client disconnected: {}", exception.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ProblemDetail> handleGeneral(Exception exception, WebRequest request) {
+        if (exception instanceof ErrorResponse errorResponse) {
+            return ResponseEntity.status(errorResponse.getStatusCode())
+                    .headers(errorResponse.getHeaders())
+                    .body(errorResponse.getBody());
+        }
         logger.error("Unexpected error: {}", exception.getMessage(), exception);
 
         ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR,
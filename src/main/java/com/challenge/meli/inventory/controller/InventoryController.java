@@ -1,18 +1,52 @@
 package com.challenge.meli.inventory.controller;
 
 import com.challenge.meli.inventory.dto.*;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import com.challenge.meli.inventory.exception.ReservationExpiredException;
+import com.challenge.meli.inventory.exception.ReservationNotActiveException;
+import com.challenge.meli.inventory.exception.ReservationNotFoundException;
+import com.challenge.meli.inventory.service.AvailabilityCache;
+import com.challenge.meli.inventory.service.AvailabilityStream;
+import com.challenge.meli.inventory.service.AvailabilitySnapshot;
+import com.challenge.meli.inventory.service.IdempotencyService;
+import com.challenge.meli.inventory.service.InventoryBucketService;
 import com.challenge.meli.inventory.service.InventoryService;
+import com.challenge.meli.inventory.service.ReservationAdmission;
+import com.challenge.meli.inventory.service.ReservationCombiner;
+import com.challenge.meli.inventory.service.ReservationEngine;
+import com.challenge.meli.inventory.service.StockAdjustmentIngest;
+import com.challenge.meli.inventory.service.StockEventJournal;
+import com.challenge.meli.inventory.service.StoreLocator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 @RestController
 @RequestMapping("/inventory")
 @Tag(name = "Inventorry Management", description = "APIs for inventory and stock managent")
@@ -20,24 +54,108 @@ public class InventoryController {
 
     private static final Logger logger = LoggerFactory.getLogger(InventoryController.class);
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final InventoryService inventoryService;
+    private final ReservationEngine reservationEngine;
+    private final InventoryBucketService bucketService;
+    private final ReservationCombiner reservationCombiner;
+    private final AvailabilityCache availabilityCache;
+    private final StockAdjustmentIngest adjustmentIngest;
+    private final ReservationAdmission reservationAdmission;
+    private final StoreLocator storeLocator;
+    private final StockEventJournal journal;
+    private final IdempotencyService idempotencyService;
+    private final AvailabilityStream availabilityStream;
 
-    public InventoryController(InventoryService inventoryService) {
+    public InventoryController(InventoryService inventoryService, ReservationEngine reservationEngine,
+                               InventoryBucketService bucketService, ReservationCombiner reservationCombiner,
+                               AvailabilityCache availabilityCache, StockAdjustmentIngest adjustmentIngest,
+                               ReservationAdmission reservationAdmission, StoreLocator storeLocator,
+                               StockEventJournal journal, IdempotencyService idempotencyService,
+                               AvailabilityStream availabilityStream) {
         this.inventoryService = inventoryService;
+        this.reservationEngine = reservationEngine;
+        this.bucketService = bucketService;
+        this.reservationCombiner = reservationCombiner;
+        this.availabilityCache = availabilityCache;
+        this.adjustmentIngest = adjustmentIngest;
+        this.reservationAdmission = reservationAdmission;
+        this.storeLocator = storeLocator;
+        this.journal = journal;
+        this.idempotencyService = idempotencyService;
+        this.availabilityStream = availabilityStream;
     }
 
     @GetMapping("/{productId}/availability")
     @Operation(summary = "Get product availability",
                 description = "Retrieve availability information for a product across stores")
     @ApiResponse(responseCode = "200", description = "Availability information retrieved successfully")
+    @ApiResponse(responseCode = "304", description = "Availability unchanged since the given ETag")
     public ResponseEntity<InventoryAvailabilityResponse> getAvailability(
             @Parameter(description = "Product ID") @PathVariable String productId,
-            @Parameter(description = "Store ID (optional)") @RequestParam(required = false) String storeId){
+            @Parameter(description = "Store ID (optional)") @RequestParam(required = false) String storeId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
 
         logger.info("Getting availability for product {} in store {}", productId, storeId);
 
-        InventoryAvailabilityResponse response = inventoryService.getAvailability(productId, storeId);
-        return ResponseEntity.ok(response);
+        if (ifNoneMatch != null) {
+            String etag = inventoryService.getAvailabilityEtag(productId, storeId);
+            if (etag != null && matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        AvailabilitySnapshot snapshot = inventoryService.getVersionedAvailability(productId, storeId);
+        if (snapshot.etag() == null) {
+            return ResponseEntity.ok(snapshot.response());
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.response());
+    }
+
+    @GetMapping("/{productId}/nearby")
+    @Operation(summary = "Find nearby stores with stock",
+                description = "Nearest stores within a radius that have the product available, ordered by distance")
+    @ApiResponse(responseCode = "200", description = "Nearby stores retrieved successfully")
+    public ResponseEntity<NearbyStoresResponse> getNearbyStores(
+            @Parameter(description = "Product ID") @PathVariable String productId,
+            @Parameter(description = "Latitude") @RequestParam @DecimalMin("-90") @DecimalMax("90") Double lat,
+            @Parameter(description = "Longitude") @RequestParam @DecimalMin("-180") @DecimalMax("180") Double lon,
+            @Parameter(description = "Search radius in km") @RequestParam(defaultValue = "50") @Positive Double radiusKm,
+            @Parameter(description = "Maximum number of stores") @RequestParam(defaultValue = "10") @Positive @Max(100) Integer limit) {
+
+        logger.debug("Finding stores near ({}, {}) with product {}", lat, lon, productId);
+
+        return ResponseEntity.ok(storeLocator.findNearby(productId, lat, lon, radiusKm, limit));
+    }
+
+    @PostMapping("/availability:batch")
+    @Operation(summary = "Get availability of several products",
+                description = "Retrieve availability for up to 500 products in one call, optionally limited to some stores")
+    @ApiResponse(responseCode = "200", description = "Availability information retrieved successfully")
+    public ResponseEntity<Map<String, InventoryAvailabilityResponse>> getBatchAvailability(
+            @Valid @RequestBody BatchAvailabilityRequest request) {
+
+        logger.info("Getting batch availability for {} products", request.productIds().size());
+
+        return ResponseEntity.ok(inventoryService.getAvailability(request.productIds(), request.storeIds()));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream availability changes",
+                description = "Server-Sent Events with the current stock of every row of the given products and/or stores that changes")
+    @ApiResponse(responseCode = "200", description = "Stream opened")
+    public SseEmitter streamAvailability(
+            @Parameter(description = "Product IDs") @RequestParam(defaultValue = "") @Size(max = 100) List<String> productIds,
+            @Parameter(description = "Store IDs") @RequestParam(defaultValue = "") @Size(max = 100) List<String> storeIds) {
+
+        if (productIds.isEmpty() && storeIds.isEmpty()) {
+            throw new InventoryServiceException("At least one productId or storeId is required");
+        }
+        logger.info("Streaming availability of products {} in stores {}", productIds, storeIds);
+
+        return availabilityStream.subscribe(productIds, storeIds);
     }
 
     @PostMapping("/reserve")
@@ -45,34 +163,115 @@ public class InventoryController {
                 description = "Create a temporary reservation for a product")
     @ApiResponse(responseCode = "201", description = "Reservation created successfully")
     @ApiResponse(responseCode = "409", description = "Insufficient stock")
-    public ResponseEntity<ReservationResponse> reserveProduct(@Valid @RequestBody ReservationRequest request){
+    @ApiResponse(responseCode = "429", description = "Too many concurrent reservations for the product in the store")
+    @ApiResponse(responseCode = "422", description = "Idempotency key already used for a different request")
+    public ResponseEntity<ReservationResponse> reserveProduct(
+            @Parameter(description = "Key to safely retry the request") @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody ReservationRequest request){
         logger.info("Creating reservation for product {} in store",
                 request.productId(), request.storeId());
 
-        ReservationResponse response = inventoryService.reserveProduct(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return idempotent("reserve", idempotencyKey, request, HttpStatus.CREATED, ReservationResponse.class,
+                () -> reservationAdmission.reserve(request, () -> reserve(request)));
+    }
+
+    private ReservationResponse reserve(ReservationRequest request) {
+        if (reservationEngine.isEnabled()) {
+            return reservationEngine.reserve(request);
+        } else if (inventoryService.usesConditionalUpdates()) {
+            // falls back to the buckets itself when the row is split
+            return inventoryService.reserveConditionally(request);
+        } else if (bucketService.isBucketed(request.productId(), request.storeId())) {
+            return inventoryService.reserveFromBuckets(request);
+        } else if (reservationCombiner.isEnabled()) {
+            return reservationCombiner.reserve(request);
+        }
+        return inventoryService.reserveProduct(request);
+    }
+
+    @PostMapping("/reserve:cart")
+    @Operation(summary = "Reserve cart",
+                description = "Reserve every line of a cart in one transaction, all or nothing")
+    @ApiResponse(responseCode = "201", description = "All lines reserved")
+    @ApiResponse(responseCode = "409", description = "Insufficient stock for a line; nothing was reserved")
+    public ResponseEntity<CartReservationResponse> reserveCart(
+            @Parameter(description = "Key to safely retry the request") @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody CartReservationRequest request) {
+        logger.info("Creating cart reservation with {} lines", request.lines().size());
+
+        if (reservationEngine.isEnabled()) {
+            throw new InventoryServiceException("Cart reservations are not supported by the in-memory reservation engine");
+        }
+        return idempotent("reserve_cart", idempotencyKey, request, HttpStatus.CREATED, CartReservationResponse.class,
+                () -> inventoryService.reserveCart(request));
     }
 
     @DeleteMapping("/release/{reservationId}")
     @Operation(summary = "release reservation",
                 description = "Release a product reservation")
     @ApiResponse(responseCode = "204", description = "Reservation released successfully")
-    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+    public ResponseEntity<Void> releaseReservation(
+            @Parameter(description = "Key to safely retry the request") @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @PathVariable String reservationId) {
         logger.info("Releasing reservation: {}", reservationId);
 
-        inventoryService.releaseReservation(reservationId);
-        return ResponseEntity.noContent().build();
+        return idempotent("release", idempotencyKey, reservationId, HttpStatus.NO_CONTENT, Void.class, () -> {
+            if (reservationEngine.isEnabled()) {
+                reservationEngine.releaseReservation(reservationId);
+            } else if (inventoryService.usesConditionalUpdates()) {
+                inventoryService.releaseConditionally(reservationId);
+            } else {
+                inventoryService.releaseReservation(reservationId);
+            }
+            return null;
+        });
     }
 
     @PostMapping("/confirm/{reservationId}")
     @Operation(summary = "Confirm reserrvation",
                 description = "Confirm a product reservation")
     @ApiResponse(responseCode = "204", description = "Reservation confirmed successfully")
-    public ResponseEntity<Void> confirmReserrvation(@PathVariable String reservationId) {
+    public ResponseEntity<Void> confirmReserrvation(
+            @Parameter(description = "Key to safely retry the request") @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @PathVariable String reservationId) {
         logger.info("Confirming reservation: {}", reservationId);
 
-        inventoryService.confirmReservation(reservationId);
-        return ResponseEntity.noContent().build();
+        return idempotent("confirm", idempotencyKey, reservationId, HttpStatus.NO_CONTENT, Void.class, () -> {
+            if (reservationEngine.isEnabled()) {
+                reservationEngine.confirmReservation(reservationId);
+            } else if (inventoryService.usesConditionalUpdates()) {
+                inventoryService.confirmConditionally(reservationId);
+            } else {
+                inventoryService.confirmReservation(reservationId);
+            }
+            return null;
+        });
+    }
+
+    @PostMapping("/confirm:batch")
+    @Operation(summary = "Confirm reservations",
+                description = "Confirm up to 500 reservations in one call, with one outcome per reservation")
+    @ApiResponse(responseCode = "200", description = "Batch processed")
+    public ResponseEntity<ReservationBatchResponse> confirmReservations(@Valid @RequestBody ReservationBatchRequest request) {
+        logger.info("Confirming {} reservations", request.reservationIds().size());
+
+        List<ReservationBatchResponse.ResultDto> results = reservationEngine.isEnabled()
+                ? settleOneByOne(request.reservationIds(), reservationEngine::confirmReservation)
+                : inventoryService.confirmReservations(request.reservationIds());
+        return ResponseEntity.ok(new ReservationBatchResponse(results, LocalDateTime.now()));
+    }
+
+    @PostMapping("/release:batch")
+    @Operation(summary = "Release reservations",
+                description = "Release up to 500 reservations in one call, with one outcome per reservation")
+    @ApiResponse(responseCode = "200", description = "Batch processed")
+    public ResponseEntity<ReservationBatchResponse> releaseReservations(@Valid @RequestBody ReservationBatchRequest request) {
+        logger.info("Releasing {} reservations", request.reservationIds().size());
+
+        List<ReservationBatchResponse.ResultDto> results = reservationEngine.isEnabled()
+                ? settleOneByOne(request.reservationIds(), reservationEngine::releaseReservation)
+                : inventoryService.releaseReservations(request.reservationIds());
+        return ResponseEntity.ok(new ReservationBatchResponse(results, LocalDateTime.now()));
     }
 
     @PutMapping("/adjust")
@@ -83,7 +282,130 @@ public class InventoryController {
         logger.info("Processing stock adjustment batch: {}",
                 request.batchId());
 
-        StockAdjustmentResponse response = inventoryService.adjustStock(request);
-        return ResponseEntity.ok(response);
+        return idempotent("adjust", request.batchId(), request, HttpStatus.OK, StockAdjustmentResponse.class,
+                () -> reservationEngine.isEnabled()
+                        ? reservationEngine.adjustStock(request)
+                        : inventoryService.adjustStock(request));
+    }
+
+    @PutMapping(value = "/adjust/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream stock adjustments",
+                description = "Apply newline-delimited adjustments incrementally, streaming one result line per item (internal use)")
+    @ApiResponse(responseCode = "200", description = "Adjustments streamed")
+    public void adjustStockStream(@Parameter(description = "Batch ID") @RequestParam String batchId,
+                                  @Parameter(description = "Source system") @RequestParam(defaultValue = "STREAM") String source,
+                                  InputStream body, HttpServletResponse response) throws IOException {
+        logger.info("Processing stock adjustment stream: {}", batchId);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        adjustmentIngest.ingest(batchId, source, body, response.getOutputStream());
+    }
+
+    @PutMapping("/{productId}/stores/{storeId}/buckets")
+    @Operation(summary = "Split stock into buckets",
+                description = "Spread the available stock of a hot SKU over N independently locked buckets (internal use)")
+    @ApiResponse(responseCode = "204", description = "Stock split successfully")
+    public ResponseEntity<Void> splitStock(@PathVariable String productId, @PathVariable String storeId,
+                                           @Parameter(description = "Number of buckets") @RequestParam Integer count) {
+        logger.info("Splitting stock of product {} in store {} into {} buckets", productId, storeId, count);
+
+        if (reservationEngine.isEnabled()) {
+            throw new InventoryServiceException("Stock buckets are not used by the in-memory reservation engine");
+        }
+        bucketService.split(productId, storeId, count);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{productId}/stores/{storeId}/buckets")
+    @Operation(summary = "Merge stock buckets",
+                description = "Fold the buckets of a SKU back into its single inventory row (internal use)")
+    @ApiResponse(responseCode = "204", description = "Stock merged successfully")
+    public ResponseEntity<Void> mergeStock(@PathVariable String productId, @PathVariable String storeId) {
+        logger.info("Merging stock buckets of product {} in store {}", productId, storeId);
+
+        if (reservationEngine.isEnabled()) {
+            throw new InventoryServiceException("Stock buckets are not used by the in-memory reservation engine");
+        }
+        bucketService.merge(productId, storeId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/combiner/stats")
+    @Operation(summary = "Reservation combiner stats",
+                description = "Batch fill statistics of the reservation combiner (internal use)")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<CombinerStatsResponse> getCombinerStats() {
+        return ResponseEntity.ok(reservationCombiner.getStats());
+    }
+
+    @GetMapping("/journal")
+    @Operation(summary = "Read stock events",
+                description = "Committed stock mutations from a journal offset on, optionally waiting for new ones (internal use)")
+    @ApiResponse(responseCode = "200", description = "Events retrieved successfully")
+    public ResponseEntity<StockEventPage> readJournal(
+            @Parameter(description = "Journal offset to start from") @RequestParam(defaultValue = "0") @PositiveOrZero Long fromOffset,
+            @Parameter(description = "Maximum number of events") @RequestParam(defaultValue = "500") @Positive @Max(10000) Integer limit,
+            @Parameter(description = "Milliseconds to wait for new events") @RequestParam(defaultValue = "0") @PositiveOrZero @Max(30000) Long waitMs) {
+        return ResponseEntity.ok(journal.read(fromOffset, limit, waitMs));
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Availability cache stats",
+                description = "Hit, miss and eviction counters of the availability cache (internal use)")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(availabilityCache.getStats());
+    }
+
+    /**
+     * Runs the write once per idempotency key; retries get the stored response, marked with
+     * {@code Idempotent-Replayed: true}.
+     */
+    private <T> ResponseEntity<T> idempotent(String operation, String idempotencyKey, Object request, HttpStatus status,
+                                             Class<T> responseType, Supplier<T> write) {
+        IdempotencyService.Outcome<T> outcome = idempotencyService.execute(operation, idempotencyKey, request, responseType, write);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (outcome.replayed()) {
+            response.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        return response.body(outcome.response());
+    }
+
+    /**
+     * The in-memory engine settles each reservation in its partition; its outcomes are mapped to
+     * the same statuses as the database batch.
+     */
+    private static List<ReservationBatchResponse.ResultDto> settleOneByOne(List<String> reservationIds,
+                                                                           Consumer<String> settle) {
+        List<ReservationBatchResponse.ResultDto> results = new ArrayList<>(reservationIds.size());
+        for (String reservationId : reservationIds) {
+            try {
+                settle.accept(reservationId);
+                results.add(new ReservationBatchResponse.ResultDto(reservationId, "SUCCESS", null));
+            } catch (ReservationNotFoundException e) {
+                results.add(new ReservationBatchResponse.ResultDto(reservationId, "NOT_FOUND", e.getMessage()));
+            } catch (ReservationExpiredException e) {
+                results.add(new ReservationBatchResponse.ResultDto(reservationId, "EXPIRED", e.getMessage()));
+            } catch (ReservationNotActiveException e) {
+                results.add(new ReservationBatchResponse.ResultDto(reservationId, "NOT_ACTIVE", e.getMessage()));
+            } catch (InventoryServiceException e) {
+                results.add(new ReservationBatchResponse.ResultDto(reservationId, "ERROR", e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
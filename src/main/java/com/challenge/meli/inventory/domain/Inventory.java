@@ -42,6 +42,11 @@ public class Inventory {
     @Column(name = "last_updated")
     private LocalDateTime lastUpdated;
 
+    @NotNull
+    @PositiveOrZero
+    @Column(name = "bucket_count", nullable = false)
+    private Integer bucketCount = 0;
+
     @Version
     private Long version;
 
@@ -63,6 +68,10 @@ public class Inventory {
         this.total = this.available + this.reserved;
     }*/
 
+    public boolean isBucketed() {
+        return this.bucketCount != null && this.bucketCount > 0;
+    }
+
     public boolean canReserve(Integer quantity) {
         return this.available >= quantity;
     }
@@ -0,0 +1,91 @@
+package com.challenge.meli.inventory.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "inventory_buckets")
+public class InventoryBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+
+    @NotNull
+    @Column(name = "store_id", nullable = false)
+    private String storeId;
+
+    @NotNull
+    @Column(name = "bucket_index", nullable = false)
+    private Integer bucketIndex;
+
+    @NotNull
+    @PositiveOrZero
+    @Column(nullable = false)
+    private Integer available;
+
+    @NotNull
+    @PositiveOrZero
+    @Column(nullable = false)
+    private Integer reserved;
+
+    @Column(name = "last_updated")
+    private LocalDateTime lastUpdated;
+
+    @Version
+    private Long version;
+
+    public InventoryBucket() {}
+
+    public InventoryBucket(String productId, String storeId, Integer bucketIndex, Integer available) {
+        this.productId = productId;
+        this.storeId = storeId;
+        this.bucketIndex = bucketIndex;
+        this.available = available;
+        this.reserved = 0;
+        this.lastUpdated = LocalDateTime.now();
+    }
+
+    public boolean canReserve(Integer quantity) {
+        return this.available >= quantity;
+    }
+
+    public void reserve(Integer quantity) {
+        if (!canReserve(quantity)) {
+            throw new IllegalArgumentException("Insufficient stock available");
+        }
+        this.available -= quantity;
+        this.reserved += quantity;
+        this.lastUpdated = LocalDateTime.now();
+    }
+
+    public void releaseReservation(Integer quantity) {
+        if (this.reserved < quantity) {
+            throw new IllegalArgumentException("Cannot release more than reserved");
+        }
+        this.reserved -= quantity;
+        this.available += quantity;
+        this.lastUpdated = LocalDateTime.now();
+    }
+
+    public void confirmSale(Integer quantity) {
+        if (this.reserved < quantity) {
+            throw new IllegalArgumentException("Cannot confirm more than reserved");
+        }
+        this.reserved -= quantity;
+        this.lastUpdated = LocalDateTime.now();
+    }
+
+    public Integer getTotal() {
+        return this.available + this.reserved;
+    }
+}
@@ -49,6 +49,9 @@ public class Reservation {
     @Column(name = "confirmation_code")
     private String confirmationCode;
 
+    @Column(name = "bucket_index")
+    private Integer bucketIndex;
+
     public Reservation(String reservationId, String productId, String storeId,
                        String customerId, Integer quantity, LocalDateTime expiresAt) {
         this.reservationId = reservationId;
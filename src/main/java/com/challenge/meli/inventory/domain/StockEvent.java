@@ -0,0 +1,55 @@
+package com.challenge.meli.inventory.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed stock mutation of one (productId, storeId), as recorded in the stock event journal.
+ * {@code reference} is the reservation id, or the adjustment's event id for {@code ADJUST}.
+ * {@code quantity} is the reservation quantity, or the signed stock delta for {@code ADJUST}.
+ * <p>
+ * Applied to a row: {@code RESERVE} moves {@code quantity} from available to reserved,
+ * {@code RELEASE} and {@code EXPIRE} move it back, {@code CONFIRM} removes it from reserved and
+ * {@code ADJUST} adds it to available.
+ */
+public record StockEvent(
+        Type type,
+        String productId,
+        String storeId,
+        String reference,
+        int quantity,
+        LocalDateTime expiresAt,
+        LocalDateTime timestamp
+) {
+
+    /**
+     * Stored by ordinal: only append new types.
+     */
+    public enum Type {
+        RESERVE, RELEASE, CONFIRM, EXPIRE, ADJUST
+    }
+
+    public static StockEvent reserve(Reservation reservation) {
+        return of(Type.RESERVE, reservation, reservation.getExpiresAt());
+    }
+
+    public static StockEvent release(Reservation reservation) {
+        return of(Type.RELEASE, reservation, null);
+    }
+
+    public static StockEvent confirm(Reservation reservation) {
+        return of(Type.CONFIRM, reservation, null);
+    }
+
+    public static StockEvent expire(Reservation reservation) {
+        return of(Type.EXPIRE, reservation, null);
+    }
+
+    public static StockEvent adjust(String productId, String storeId, String eventId, int delta) {
+        return new StockEvent(Type.ADJUST, productId, storeId, eventId, delta, null, LocalDateTime.now());
+    }
+
+    private static StockEvent of(Type type, Reservation reservation, LocalDateTime expiresAt) {
+        return new StockEvent(type, reservation.getProductId(), reservation.getStoreId(),
+                reservation.getReservationId(), reservation.getQuantity(), expiresAt, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,13 @@
+package com.challenge.meli.inventory.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchAvailabilityRequest(
+        @NotEmpty @Size(max = 500) List<@NotBlank String> productIds,
+        @Size(max = 500) List<@NotBlank String> storeIds
+) {
+}
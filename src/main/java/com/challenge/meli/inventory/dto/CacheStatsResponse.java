@@ -0,0 +1,15 @@
+package com.challenge.meli.inventory.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public record CacheStatsResponse(
+        @NotNull Long size,
+        @NotNull Integer indexedProducts,
+        @NotNull Long hits,
+        @NotNull Long misses,
+        @NotNull Double hitRate,
+        @NotNull Long evictions,
+        @NotNull Long invalidations,
+        @NotNull Double averageLoadMillis
+) {
+}
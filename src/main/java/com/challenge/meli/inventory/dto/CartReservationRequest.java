@@ -0,0 +1,23 @@
+package com.challenge.meli.inventory.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CartReservationRequest(
+        @NotEmpty @Size(max = 200) List<@Valid @NotNull LineDto> lines,
+        String customerId,
+        Integer reservationTtl
+) {
+
+    public record LineDto(
+            @NotBlank String productId,
+            @NotBlank String storeId,
+            @NotNull @Positive Integer quantity
+    ) {}
+}
@@ -0,0 +1,14 @@
+package com.challenge.meli.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record CartReservationResponse(
+        @NotNull List<ReservationResponse> reservations,
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        @NotNull LocalDateTime expiresAt
+) {
+}
@@ -0,0 +1,18 @@
+package com.challenge.meli.inventory.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.Map;
+
+public record CombinerStatsResponse(
+        @NotNull Boolean enabled,
+        @NotNull Long windowMs,
+        @NotNull Integer maxBatchSize,
+        @NotNull Long batches,
+        @NotNull Long requests,
+        @NotNull Double averageBatchSize,
+        @NotNull Double averageFillRatio,
+        @NotNull Long largestBatch,
+        @NotNull Map<Integer, Long> batchSizeHistogram
+) {
+}
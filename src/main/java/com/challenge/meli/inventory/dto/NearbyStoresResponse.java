@@ -0,0 +1,20 @@
+package com.challenge.meli.inventory.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public record NearbyStoresResponse(
+        @NotNull String productId,
+        @NotNull List<NearbyStoreDto> stores,
+        @NotNull InventoryAvailabilityResponse.MetadataDto metadata
+) {
+
+    public record NearbyStoreDto(
+            @NotNull String storeId,
+            @NotNull String storeName,
+            @NotNull InventoryAvailabilityResponse.LocationDto location,
+            @NotNull Double distanceKm,
+            @NotNull Integer available
+    ) {}
+}
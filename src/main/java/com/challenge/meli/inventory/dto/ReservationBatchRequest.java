@@ -0,0 +1,12 @@
+package com.challenge.meli.inventory.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ReservationBatchRequest(
+        @NotEmpty @Size(max = 500) List<@NotBlank String> reservationIds
+) {
+}
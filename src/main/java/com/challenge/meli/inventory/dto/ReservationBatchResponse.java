@@ -0,0 +1,24 @@
+package com.challenge.meli.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ReservationBatchResponse(
+        @NotNull List<ResultDto> results,
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        @NotNull LocalDateTime processedAt
+) {
+
+    /**
+     * {@code status} is {@code SUCCESS}, {@code NOT_FOUND}, {@code EXPIRED}, {@code NOT_ACTIVE} or, with the
+     * in-memory engine only, {@code ERROR}.
+     */
+    public record ResultDto(
+            @NotNull String reservationId,
+            @NotNull String status,
+            String errorMessage
+    ) {}
+}
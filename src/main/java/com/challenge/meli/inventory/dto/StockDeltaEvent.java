@@ -0,0 +1,17 @@
+package com.challenge.meli.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Current stock of one (productId, storeId), pushed on the availability stream after it changed.
+ */
+public record StockDeltaEvent(
+        @NotNull String productId,
+        @NotNull String storeId,
+        @NotNull InventoryAvailabilityResponse.StockInfoDto stock,
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        @NotNull LocalDateTime lastUpdate
+) {}
@@ -0,0 +1,22 @@
+package com.challenge.meli.inventory.dto;
+
+import com.challenge.meli.inventory.domain.StockEvent;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * Events read from the stock event journal. {@code nextOffset} is where the next read starts;
+ * {@code endOffset} is the end of the journal when the page was read.
+ */
+public record StockEventPage(
+        @NotNull List<EntryDto> events,
+        @NotNull Long nextOffset,
+        @NotNull Long endOffset
+) {
+
+    public record EntryDto(
+            @NotNull Long offset,
+            @NotNull StockEvent event
+    ) {}
+}
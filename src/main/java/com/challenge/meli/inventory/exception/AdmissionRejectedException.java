@@ -0,0 +1,13 @@
+package com.challenge.meli.inventory.exception;
+
+import lombok.Getter;
+
+@Getter
+public class AdmissionRejectedException extends InventoryServiceException {
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
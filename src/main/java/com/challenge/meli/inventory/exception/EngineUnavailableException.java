@@ -0,0 +1,18 @@
+package com.challenge.meli.inventory.exception;
+
+import lombok.Getter;
+
+@Getter
+public class EngineUnavailableException extends InventoryServiceException {
+    private final long retryAfterSeconds;
+
+    public EngineUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public EngineUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
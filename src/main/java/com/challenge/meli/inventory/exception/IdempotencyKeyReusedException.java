@@ -0,0 +1,13 @@
+package com.challenge.meli.inventory.exception;
+
+import lombok.Getter;
+
+@Getter
+public class IdempotencyKeyReusedException extends InventoryServiceException {
+    private final String idempotencyKey;
+
+    public IdempotencyKeyReusedException(String operation, String idempotencyKey) {
+        super(String.format("Idempotency key %s was already used for a different %s request", idempotencyKey, operation));
+        this.idempotencyKey = idempotencyKey;
+    }
+}
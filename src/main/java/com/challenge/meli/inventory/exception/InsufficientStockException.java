@@ -8,13 +8,20 @@ public class InsufficientStockException extends InventoryServiceException {
     private final String storeId;
     private final Integer requestedQuantity;
     private final Integer availableQuantity;
+    private final Long retryAfterSeconds;
 
     public InsufficientStockException(String productId, String storeId, Integer requestedQuantity, Integer availableQuantity) {
-        super(String.format("Insufficient stock for product %s. Requested: %d, Available: %d",
+        this(productId, storeId, requestedQuantity, availableQuantity, null);
+    }
+
+    public InsufficientStockException(String productId, String storeId, Integer requestedQuantity, Integer availableQuantity,
+                                      Long retryAfterSeconds) {
+        super(String.format("Insufficient stock for product %s in store %s. Requested: %d, Available: %d",
                 productId, storeId, requestedQuantity, availableQuantity));
         this.productId = productId;
         this.storeId = storeId;
         this.requestedQuantity = requestedQuantity;
         this.availableQuantity = availableQuantity;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 }
@@ -0,0 +1,7 @@
+package com.challenge.meli.inventory.exception;
+
+public class ReservationNotActiveException extends InventoryServiceException {
+    public ReservationNotActiveException(String reservationId) {
+        super("Reservation is not active: " + reservationId);
+    }
+}
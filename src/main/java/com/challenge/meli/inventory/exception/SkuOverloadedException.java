@@ -0,0 +1,17 @@
+package com.challenge.meli.inventory.exception;
+
+import lombok.Getter;
+
+@Getter
+public class SkuOverloadedException extends InventoryServiceException {
+    private final String productId;
+    private final String storeId;
+    private final long retryAfterSeconds;
+
+    public SkuOverloadedException(String productId, String storeId, long retryAfterSeconds) {
+        super(String.format("Too many concurrent reservations for product %s in store %s", productId, storeId));
+        this.productId = productId;
+        this.storeId = storeId;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
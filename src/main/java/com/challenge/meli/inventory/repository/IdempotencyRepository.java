@@ -0,0 +1,56 @@
+package com.challenge.meli.inventory.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Stored responses of idempotent writes, keyed by (operation, idempotency key).
+ */
+@Repository
+public class IdempotencyRepository {
+
+    private static final String FIND_SQL =
+            "SELECT request_hash, response_body, expires_at FROM idempotency_keys " +
+            "WHERE operation = ? AND idempotency_key = ? AND expires_at > ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys (operation, idempotency_key, request_hash, response_body, created_at, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String PURGE_SQL =
+            "DELETE FROM idempotency_keys WHERE expires_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<StoredResponse> find(String operation, String idempotencyKey) {
+        return jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> new StoredResponse(rs.getString("request_hash"),
+                        rs.getString("response_body"), rs.getTimestamp("expires_at").toLocalDateTime()),
+                operation, idempotencyKey, Timestamp.valueOf(LocalDateTime.now())).stream().findFirst();
+    }
+
+    /**
+     * Stores the response unless the key is already taken. Returns false when it was.
+     */
+    public boolean insert(String operation, String idempotencyKey, StoredResponse response) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, operation, idempotencyKey, response.requestHash(), response.body(),
+                    Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(response.expiresAt()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public int purgeExpired(LocalDateTime now) {
+        return jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(now));
+    }
+
+    public record StoredResponse(String requestHash, String body, LocalDateTime expiresAt) {}
+}
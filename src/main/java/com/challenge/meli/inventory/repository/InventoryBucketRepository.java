@@ -0,0 +1,47 @@
+package com.challenge.meli.inventory.repository;
+
+import com.challenge.meli.inventory.domain.InventoryBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventoryBucketRepository extends JpaRepository<InventoryBucket, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM InventoryBucket b WHERE b.productId = :productId AND b.storeId = :storeId AND b.bucketIndex = :bucketIndex")
+    Optional<InventoryBucket> findBucketWithLock(@Param("productId") String productId,
+                                                 @Param("storeId") String storeId,
+                                                 @Param("bucketIndex") Integer bucketIndex);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM InventoryBucket b WHERE b.productId = :productId AND b.storeId = :storeId ORDER BY b.bucketIndex")
+    List<InventoryBucket> findAllWithLock(@Param("productId") String productId, @Param("storeId") String storeId);
+
+    @Query("SELECT b.bucketIndex FROM InventoryBucket b WHERE b.productId = :productId AND b.storeId = :storeId AND b.available >= :quantity")
+    List<Integer> findReservableBucketIndexes(@Param("productId") String productId,
+                                              @Param("storeId") String storeId,
+                                              @Param("quantity") Integer quantity);
+
+    @Query("SELECT COALESCE(SUM(b.available), 0) FROM InventoryBucket b WHERE b.productId = :productId AND b.storeId = :storeId")
+    Integer sumAvailable(@Param("productId") String productId, @Param("storeId") String storeId);
+
+    List<InventoryBucket> findByProductId(String productId);
+
+    @Query("SELECT b.storeId, b.bucketIndex, b.version FROM InventoryBucket b WHERE b.productId = :productId")
+    List<Object[]> findVersionsByProductId(@Param("productId") String productId);
+
+    List<InventoryBucket> findByProductIdIn(Collection<String> productIds);
+
+    @Modifying
+    @Query("DELETE FROM InventoryBucket b WHERE b.productId = :productId AND b.storeId = :storeId")
+    void deleteByProductIdAndStoreId(@Param("productId") String productId, @Param("storeId") String storeId);
+}
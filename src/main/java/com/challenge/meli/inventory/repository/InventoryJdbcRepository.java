@@ -0,0 +1,176 @@
+package com.challenge.meli.inventory.repository;
+
+import com.challenge.meli.inventory.domain.Reservation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Set-based JDBC writes for the hot paths that would otherwise issue one JPA statement per row.
+ * Runs inside whatever transaction the caller has open.
+ */
+@Repository
+public class InventoryJdbcRepository {
+
+    private static final String UPDATE_INVENTORY_SQL =
+            "UPDATE inventory SET available = ?, reserved = ?, total = ?, last_updated = ?, version = version + 1 WHERE id = ?";
+    private static final String ADD_INVENTORY_DELTAS_SQL =
+            "UPDATE inventory SET available = available + ?, reserved = reserved + ?, total = total + ?, last_updated = ?, " +
+            "version = version + 1 WHERE id = ?";
+    private static final String INSERT_RESERVATION_SQL =
+            "INSERT INTO reservations (reservation_id, product_id, store_id, customer_id, quantity, status, created_at, expires_at, confirmation_code, bucket_index) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_RESERVATION_STATUS_SQL =
+            "UPDATE reservations SET status = ? WHERE reservation_id = ?";
+    private static final String SETTLE_RESERVATION_SQL =
+            "UPDATE reservations SET status = ? WHERE reservation_id = ? AND status = 'ACTIVE'";
+
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE inventory SET available = available - ?, reserved = reserved + ?, last_updated = ?, version = version + 1 " +
+            "WHERE product_id = ? AND store_id = ? AND bucket_count = 0 AND available >= ?";
+    private static final String RELEASE_STOCK_SQL =
+            "UPDATE inventory SET available = available + ?, reserved = reserved - ?, last_updated = ?, version = version + 1 " +
+            "WHERE product_id = ? AND store_id = ? AND reserved >= ?";
+    private static final String CONFIRM_STOCK_SQL =
+            "UPDATE inventory SET reserved = reserved - ?, total = total - ?, last_updated = ?, version = version + 1 " +
+            "WHERE product_id = ? AND store_id = ? AND reserved >= ?";
+
+    private static final String LOCK_INVENTORY_KEYS_SQL =
+            "SELECT id, product_id, store_id, available, reserved FROM inventory " +
+            "WHERE (product_id, store_id) IN (%s) ORDER BY product_id, store_id FOR UPDATE";
+
+    private static final RowMapper<InventoryRow> INVENTORY_ROW = (rs, rowNum) -> new InventoryRow(rs.getLong("id"),
+            rs.getString("product_id"), rs.getString("store_id"), rs.getInt("available"), rs.getInt("reserved"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Locks exactly the given (productId, storeId) rows in (productId, storeId) order, so callers
+     * locking overlapping sets always acquire them in the same sequence.
+     */
+    public List<InventoryRow> lockInventoryRows(Collection<InventoryKey> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        String sql = LOCK_INVENTORY_KEYS_SQL.formatted(String.join(", ", Collections.nCopies(keys.size(), "(?, ?)")));
+        Object[] args = new Object[keys.size() * 2];
+        int i = 0;
+        for (InventoryKey key : keys) {
+            args[i++] = key.productId();
+            args[i++] = key.storeId();
+        }
+        return jdbcTemplate.query(sql, INVENTORY_ROW, args);
+    }
+
+    /**
+     * Moves {@code quantity} from available to reserved in one statement, provided the row has that
+     * much available and is not split into buckets. Returns whether it did.
+     */
+    public boolean reserveStock(String productId, String storeId, int quantity) {
+        return jdbcTemplate.update(RESERVE_STOCK_SQL, quantity, quantity, Timestamp.valueOf(LocalDateTime.now()),
+                productId, storeId, quantity) > 0;
+    }
+
+    /**
+     * Moves {@code quantity} from reserved back to available in one statement. Returns whether the
+     * row had that much reserved.
+     */
+    public boolean releaseStock(String productId, String storeId, int quantity) {
+        return jdbcTemplate.update(RELEASE_STOCK_SQL, quantity, quantity, Timestamp.valueOf(LocalDateTime.now()),
+                productId, storeId, quantity) > 0;
+    }
+
+    /**
+     * Removes {@code quantity} from reserved and total in one statement. Returns whether the row
+     * had that much reserved.
+     */
+    public boolean confirmStock(String productId, String storeId, int quantity) {
+        return jdbcTemplate.update(CONFIRM_STOCK_SQL, quantity, quantity, Timestamp.valueOf(LocalDateTime.now()),
+                productId, storeId, quantity) > 0;
+    }
+
+    public void updateInventoryCounters(List<InventoryCounters> counters) {
+        if (counters.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_INVENTORY_SQL, counters.stream()
+                .map(c -> new Object[]{c.available(), c.reserved(), c.total(), Timestamp.valueOf(c.lastUpdated()), c.inventoryId()})
+                .toList());
+    }
+
+    /**
+     * Adds the deltas to the rows' counters, leaving any change made by another writer in place.
+     */
+    public void addInventoryDeltas(List<InventoryDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_INVENTORY_DELTAS_SQL, deltas.stream()
+                .map(d -> new Object[]{d.available(), d.reserved(), d.total(), Timestamp.valueOf(d.lastUpdated()), d.inventoryId()})
+                .toList());
+    }
+
+    public void insertReservations(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION_SQL, reservations.stream()
+                .map(r -> new Object[]{r.getReservationId(), r.getProductId(), r.getStoreId(), r.getCustomerId(),
+                        r.getQuantity(), r.getStatus().name(), Timestamp.valueOf(r.getCreatedAt()),
+                        Timestamp.valueOf(r.getExpiresAt()), r.getConfirmationCode(), r.getBucketIndex()})
+                .toList());
+    }
+
+    public void updateReservationStatuses(List<ReservationStatusChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_RESERVATION_STATUS_SQL, changes.stream()
+                .map(c -> new Object[]{c.status().name(), c.reservationId()})
+                .toList());
+    }
+
+    /**
+     * Moves each reservation out of {@code ACTIVE} and returns, per change, whether it applied;
+     * reservations already settled by someone else are left untouched.
+     */
+    public boolean[] settleReservations(List<ReservationStatusChange> changes) {
+        boolean[] applied = new boolean[changes.size()];
+        if (changes.isEmpty()) {
+            return applied;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(SETTLE_RESERVATION_SQL, changes.stream()
+                .map(c -> new Object[]{c.status().name(), c.reservationId()})
+                .toList());
+        for (int i = 0; i < counts.length; i++) {
+            applied[i] = counts[i] > 0;
+        }
+        return applied;
+    }
+
+    public record InventoryKey(String productId, String storeId) implements Comparable<InventoryKey> {
+        @Override
+        public int compareTo(InventoryKey other) {
+            int byProduct = productId.compareTo(other.productId);
+            return byProduct != 0 ? byProduct : storeId.compareTo(other.storeId);
+        }
+    }
+
+    public record InventoryRow(Long inventoryId, String productId, String storeId, int available, int reserved) {}
+
+    public record InventoryCounters(Long inventoryId, int available, int reserved, int total, LocalDateTime lastUpdated) {}
+
+    public record InventoryDelta(Long inventoryId, int available, int reserved, int total, LocalDateTime lastUpdated) {}
+
+    public record ReservationStatusChange(String reservationId, Reservation.ReservationStatus status) {}
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,18 @@ public interface InventoryRepository extends JpaRepository<Inventory, String> {
 
     Optional<Inventory> findByProductIdAndStoreId(String productId, String storeId);
 
+    @Query("SELECT i.storeId, i.version FROM Inventory i WHERE i.productId = :productId")
+    List<Object[]> findVersionsByProductId(@Param("productId") String productId);
+
+    @Query("SELECT i.storeId, i.version FROM Inventory i WHERE i.productId = :productId AND i.storeId = :storeId")
+    List<Object[]> findVersionsByProductIdAndStoreId(@Param("productId") String productId, @Param("storeId") String storeId);
+
+    @Query("SELECT i.available FROM Inventory i WHERE i.productId = :productId AND i.storeId = :storeId")
+    Optional<Integer> findAvailableQuantity(@Param("productId") String productId, @Param("storeId") String storeId);
+
+    @Query("SELECT i.bucketCount FROM Inventory i WHERE i.productId = :productId AND i.storeId = :storeId")
+    Optional<Integer> findBucketCount(@Param("productId") String productId, @Param("storeId") String storeId);
+
     List<Inventory> findByStoreId(String storeId);
 
     List<Inventory> findByProductId(String productId);
@@ -30,4 +43,13 @@ public interface InventoryRepository extends JpaRepository<Inventory, String> {
     @Query("SELECT i FROM Inventory i WHERE i.storeId = :storeId AND i.available < :threshold")
     List<Inventory> findLowStockByStore(@Param("storeId") String storeId,
                                         @Param("threshold") Integer threshold);
+
+    @Query("SELECT i, s FROM Inventory i JOIN Store s ON s.storeId = i.storeId " +
+            "WHERE i.productId IN :productIds ORDER BY i.productId, i.storeId")
+    List<Object[]> findWithStoreByProductIds(@Param("productIds") Collection<String> productIds);
+
+    @Query("SELECT i, s FROM Inventory i JOIN Store s ON s.storeId = i.storeId " +
+            "WHERE i.productId IN :productIds AND i.storeId IN :storeIds ORDER BY i.productId, i.storeId")
+    List<Object[]> findWithStoreByProductIdsAndStoreIds(@Param("productIds") Collection<String> productIds,
+                                                        @Param("storeIds") Collection<String> storeIds);
 }
@@ -2,6 +2,7 @@ package com.challenge.meli.inventory.repository;
 
 import com.challenge.meli.inventory.domain.Reservation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,6 +18,9 @@ public interface ReservationRepository extends JpaRepository<Reservation, String
     @Query("SELECT r FROM Reservation r WHERE r.status = 'ACTIVE' AND r.expiresAt < :now")
     List<Reservation> findExpiredActiveReservations(@Param("now")LocalDateTime now);
 
+    @Query("SELECT r.reservationId, r.productId, r.storeId, r.expiresAt FROM Reservation r WHERE r.status = 'ACTIVE'")
+    List<Object[]> findActiveExpirations();
+
     @Query("SELECT r FROM Reservation r WHERE r.productId = :productId AND r.storeId = :storeId AND r.status = 'ACTIVE'")
     List<Reservation> findActiveReservationsByProductAndStore(@Param("productId") String productId,
                                                             @Param("storeId") String storeId);
@@ -24,4 +28,8 @@ public interface ReservationRepository extends JpaRepository<Reservation, String
     List<Reservation> findByStatusAndDataRange(@Param("status") Reservation.ReservationStatus status,
                                                @Param("start") LocalDateTime start,
                                                @Param("end") LocalDateTime end);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.bucketIndex = null WHERE r.productId = :productId AND r.storeId = :storeId AND r.bucketIndex IS NOT NULL")
+    int clearBucketIndex(@Param("productId") String productId, @Param("storeId") String storeId);
 }
@@ -0,0 +1,191 @@
+package com.challenge.meli.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk reads and inserts of the whole inventory state, for snapshots and the synthetic catalog
+ * generator. Reads go through a
+ * {@link Reader}, whose queries all see the database as of {@link Reader#pin}.
+ */
+@Repository
+public class SnapshotRepository {
+
+    // H2 keeps one snapshot for the whole transaction only at its own SNAPSHOT level
+    private static final int H2_SNAPSHOT_ISOLATION = 6;
+
+    private static final String SELECT_PRODUCTS_SQL =
+            "SELECT product_id, name, description, price, created_at, updated_at FROM product ORDER BY product_id";
+    private static final String SELECT_STORES_SQL =
+            "SELECT store_id, name, address, latitude, longitude, created_at FROM stores ORDER BY store_id";
+    private static final String COUNT_INVENTORY_SQL = "SELECT COUNT(*) FROM inventory";
+    private static final String SELECT_INVENTORY_SQL =
+            "SELECT i.product_id, i.store_id, i.available + COALESCE(b.available, 0) AS available, " +
+            "i.reserved + COALESCE(b.reserved, 0) AS reserved, i.total + COALESCE(b.available + b.reserved, 0) AS total, " +
+            "i.last_updated FROM inventory i LEFT JOIN (SELECT product_id, store_id, SUM(available) AS available, " +
+            "SUM(reserved) AS reserved FROM inventory_buckets GROUP BY product_id, store_id) b " +
+            "ON b.product_id = i.product_id AND b.store_id = i.store_id ORDER BY i.product_id, i.store_id";
+    private static final String COUNT_ACTIVE_RESERVATIONS_SQL = "SELECT COUNT(*) FROM reservations WHERE status = 'ACTIVE'";
+    private static final String SELECT_ACTIVE_RESERVATIONS_SQL =
+            "SELECT reservation_id, product_id, store_id, customer_id, quantity, created_at, expires_at, confirmation_code " +
+            "FROM reservations WHERE status = 'ACTIVE'";
+    private static final String HAS_DATA_SQL =
+            "SELECT EXISTS (SELECT 1 FROM product) OR EXISTS (SELECT 1 FROM stores) OR EXISTS (SELECT 1 FROM inventory) " +
+            "OR EXISTS (SELECT 1 FROM reservations)";
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO product (product_id, name, description, price, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_STORE_SQL =
+            "INSERT INTO stores (store_id, name, address, latitude, longitude, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_INVENTORY_SQL =
+            "INSERT INTO inventory (product_id, store_id, available, reserved, total, bucket_count, last_updated, version) " +
+            "VALUES (?, ?, ?, ?, ?, 0, ?, 0)";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SnapshotRepository(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Reader openReader() throws SQLException {
+        return new Reader(dataSource.getConnection());
+    }
+
+    /**
+     * True when there are no products, stores, inventory rows or reservations.
+     */
+    public boolean isEmpty() {
+        return !Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DATA_SQL, Boolean.class));
+    }
+
+    public void insertProducts(List<ProductRow> products) {
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, products.stream()
+                .map(p -> new Object[]{p.productId(), p.name(), p.description(), p.price(),
+                        timestamp(p.createdAt()), timestamp(p.updatedAt())})
+                .toList());
+    }
+
+    public void insertStores(List<StoreRow> stores) {
+        jdbcTemplate.batchUpdate(INSERT_STORE_SQL, stores.stream()
+                .map(s -> new Object[]{s.storeId(), s.name(), s.address(), s.latitude(), s.longitude(), timestamp(s.createdAt())})
+                .toList());
+    }
+
+    /**
+     * Inserts unsplit rows: bucket stock is already folded into them.
+     */
+    public void insertInventory(List<InventoryRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT_INVENTORY_SQL, rows.stream()
+                .map(i -> new Object[]{i.productId(), i.storeId(), i.available(), i.reserved(), i.total(), timestamp(i.lastUpdated())})
+                .toList());
+    }
+
+    private static Timestamp timestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+
+    private static LocalDateTime dateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * A read-only transaction on its own connection. Close it to release the connection.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final Connection connection;
+        private final JdbcTemplate jdbcTemplate;
+
+        private Reader(Connection connection) throws SQLException {
+            this.connection = connection;
+            try {
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                connection.setTransactionIsolation("H2".equals(connection.getMetaData().getDatabaseProductName())
+                        ? H2_SNAPSHOT_ISOLATION : Connection.TRANSACTION_REPEATABLE_READ);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            this.jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            this.jdbcTemplate.setFetchSize(1000);
+        }
+
+        /**
+         * Takes the snapshot every later query reads from.
+         */
+        public void pin() {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+        }
+
+        public List<ProductRow> products() {
+            return jdbcTemplate.query(SELECT_PRODUCTS_SQL, (rs, rowNum) -> new ProductRow(rs.getString("product_id"),
+                    rs.getString("name"), rs.getString("description"), rs.getDouble("price"),
+                    dateTime(rs, "created_at"), dateTime(rs, "updated_at")));
+        }
+
+        public List<StoreRow> stores() {
+            return jdbcTemplate.query(SELECT_STORES_SQL, (rs, rowNum) -> new StoreRow(rs.getString("store_id"),
+                    rs.getString("name"), rs.getString("address"), rs.getDouble("latitude"), rs.getDouble("longitude"),
+                    dateTime(rs, "created_at")));
+        }
+
+        public int countInventory() {
+            return jdbcTemplate.queryForObject(COUNT_INVENTORY_SQL, Integer.class);
+        }
+
+        /**
+         * Every inventory row in (productId, storeId) order, with the stock of its buckets added in.
+         */
+        public void forEachInventoryRow(Consumer<InventoryRow> consumer) {
+            jdbcTemplate.query(SELECT_INVENTORY_SQL, rs -> {
+                consumer.accept(new InventoryRow(rs.getString("product_id"), rs.getString("store_id"),
+                        rs.getInt("available"), rs.getInt("reserved"), rs.getInt("total"), dateTime(rs, "last_updated")));
+            });
+        }
+
+        public int countActiveReservations() {
+            return jdbcTemplate.queryForObject(COUNT_ACTIVE_RESERVATIONS_SQL, Integer.class);
+        }
+
+        public void forEachActiveReservation(Consumer<ReservationRow> consumer) {
+            jdbcTemplate.query(SELECT_ACTIVE_RESERVATIONS_SQL, rs -> {
+                consumer.accept(new ReservationRow(rs.getString("reservation_id"), rs.getString("product_id"),
+                        rs.getString("store_id"), rs.getString("customer_id"), rs.getInt("quantity"),
+                        dateTime(rs, "created_at"), dateTime(rs, "expires_at"), rs.getString("confirmation_code")));
+            });
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    public record ProductRow(String productId, String name, String description, double price,
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {}
+
+    public record StoreRow(String storeId, String name, String address, double latitude, double longitude,
+                           LocalDateTime createdAt) {}
+
+    public record InventoryRow(String productId, String storeId, int available, int reserved, int total,
+                               LocalDateTime lastUpdated) {}
+
+    public record ReservationRow(String reservationId, String productId, String storeId, String customerId,
+                                 int quantity, LocalDateTime createdAt, LocalDateTime expiresAt, String confirmationCode) {}
+}
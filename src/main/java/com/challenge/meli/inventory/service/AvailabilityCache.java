@@ -0,0 +1,228 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.dto.CacheStatsResponse;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Availability responses cached per {@code productId:storeId} (or {@code productId:all}), with a
+ * secondary index from productId to its cached keys so a write evicts only that product's
+ * entries. Evictions requested inside a transaction are applied again after commit, and a load
+ * that overlapped an eviction of its product is not kept.
+ * <p>
+ * Entries are futures so a load runs on the calling thread outside the cache's internal locks:
+ * writers evict while holding a pooled connection, and must never wait on a loader that is
+ * itself waiting for a connection.
+ */
+@Component
+public class AvailabilityCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityCache.class);
+
+    private final AsyncCache<String, AvailabilitySnapshot> cache;
+    private final Map<String, Set<String>> keysByProduct = new ConcurrentHashMap<>();
+    private final Cache<String, Long> generations;
+    private final AtomicLong generationClock = new AtomicLong();
+    private final LongAdder invalidations = new LongAdder();
+
+    public AvailabilityCache(@Value("${inventory.cache.availability.maximum-size:10000}") Long maximumSize,
+                             @Value("${inventory.cache.availability.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .evictionListener((String key, AvailabilitySnapshot value, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .buildAsync();
+        // a generation dropped here comes back as a value never handed out before, which only
+        // makes an overlapping load look stale
+        this.generations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Returns the cached response for the key, loading and caching it on a miss. Concurrent
+     * misses on the same key share one load. Hits come back with {@code cacheHit = true}.
+     */
+    public AvailabilitySnapshot get(String productId, String storeId, Supplier<AvailabilitySnapshot> loader) {
+        String key = key(productId, storeId);
+        long generation = generation(productId);
+        CompletableFuture<AvailabilitySnapshot> pending = new CompletableFuture<>();
+
+        CompletableFuture<AvailabilitySnapshot> future = cache.get(key, (ignored, executor) -> pending);
+        if (future != pending) {
+            try {
+                return asHit(future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        keysByProduct.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(key);
+        AvailabilitySnapshot snapshot;
+        try {
+            snapshot = loader.get();
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        pending.complete(snapshot);
+        if (generation(productId) != generation) {
+            cache.asMap().remove(key, pending);
+        }
+        return snapshot;
+    }
+
+    public AvailabilitySnapshot getIfPresent(String productId, String storeId) {
+        AvailabilitySnapshot snapshot = completed(cache.getIfPresent(key(productId, storeId)));
+        return snapshot != null ? asHit(snapshot) : null;
+    }
+
+    /**
+     * ETag of the cached entry, without touching hit/miss statistics or building a response.
+     */
+    public String peekEtag(String productId, String storeId) {
+        AvailabilitySnapshot snapshot = completed(cache.asMap().get(key(productId, storeId)));
+        return snapshot != null ? snapshot.etag() : null;
+    }
+
+    /**
+     * Available stock of the store as last cached, from the store entry or the all-stores entry
+     * of the product, without touching hit/miss statistics. Null when neither is cached.
+     */
+    public Integer peekAvailable(String productId, String storeId) {
+        AvailabilitySnapshot snapshot = completed(cache.asMap().get(key(productId, storeId)));
+        if (snapshot == null) {
+            snapshot = completed(cache.asMap().get(key(productId, null)));
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        for (InventoryAvailabilityResponse.StoreStockDto store : snapshot.response().availability()) {
+            if (store.storeId().equals(storeId)) {
+                return store.stock().available();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Value replaced by every eviction of the product. An observation made while it held a given
+     * value is still current as long as it has not moved.
+     */
+    public long currentGeneration(String productId) {
+        return generation(productId);
+    }
+
+    /**
+     * Evicts every cached entry of the product. When called inside a transaction the eviction
+     * is repeated after commit, so readers cannot re-cache the pre-commit state. The after-commit
+     * eviction runs before other synchronizations, e.g. stock event listeners.
+     */
+    public void invalidate(String productId) {
+        evict(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(productId);
+                }
+
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        keysByProduct.keySet().forEach(this::evict);
+    }
+
+    public CacheStatsResponse getStats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new CacheStatsResponse(cache.synchronous().estimatedSize(), keysByProduct.size(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount(), invalidations.sum(), stats.averageLoadPenalty() / 1_000_000.0);
+    }
+
+    /**
+     * Publishes the Caffeine statistics as the {@code availability} cache, plus its hit ratio
+     * and product invalidations.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "availability");
+        Gauge.builder("inventory.cache.availability.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .register(registry);
+        FunctionCounter.builder("inventory.cache.availability.invalidations", invalidations, LongAdder::sum)
+                .register(registry);
+    }
+
+    private void evict(String productId) {
+        generations.put(productId, generationClock.incrementAndGet());
+        Set<String> keys = keysByProduct.remove(productId);
+        if (keys != null && !keys.isEmpty()) {
+            cache.synchronous().invalidateAll(keys);
+            invalidations.add(keys.size());
+            logger.debug("Invalidated {} cached availability entries for product: {}", keys.size(), productId);
+        }
+    }
+
+    private void unindex(String key) {
+        String productId = key.substring(0, key.lastIndexOf(':'));
+        Set<String> keys = keysByProduct.get(productId);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private static AvailabilitySnapshot completed(CompletableFuture<AvailabilitySnapshot> future) {
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    private long generation(String productId) {
+        return generations.get(productId, ignored -> generationClock.incrementAndGet());
+    }
+
+    private static AvailabilitySnapshot asHit(AvailabilitySnapshot snapshot) {
+        InventoryAvailabilityResponse response = snapshot.response();
+        InventoryAvailabilityResponse.MetadataDto metadata = new InventoryAvailabilityResponse.MetadataDto(
+                UUID.randomUUID().toString(), LocalDateTime.now(), true);
+        return new AvailabilitySnapshot(
+                new InventoryAvailabilityResponse(response.productId(), response.availability(), metadata), snapshot.etag());
+    }
+
+    private static String key(String productId, String storeId) {
+        return productId + ":" + (storeId != null ? storeId : "all");
+    }
+}
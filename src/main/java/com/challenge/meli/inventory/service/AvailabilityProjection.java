@@ -0,0 +1,437 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.Product;
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.domain.Store;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Read model of availability: per product, the stock of each store already flattened with the
+ * store's name and location and the bucket stock folded in. Availability reads are served from
+ * here and never touch the {@code inventory} rows that reservations lock.
+ * <p>
+ * Stock events mark their product as pending; a single refresher thread reloads pending products
+ * every {@code inventory.projection.refresh-ms} with plain (non-locking) reads, so a change is
+ * visible after at most about one refresh interval plus one pass. A product with changes not yet
+ * loaded is served with {@code MEDIUM} confidence, or {@code LOW} once they are older than
+ * {@code max-staleness-ms}; {@code estimatedRefreshTime} is when the next pass should have loaded
+ * them. Until the first full load has finished, and for products or stores it does not know,
+ * callers read the write tables as before; such a miss has the next pass reload the product, so
+ * rows created without a stock event are picked up without lowering its confidence. Off unless
+ * {@code inventory.projection.enabled} is set.
+ */
+@Service
+public class AvailabilityProjection implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityProjection.class);
+
+    private final InventoryRepository inventoryRepository;
+    private final ProductRepository productRepository;
+    private final InventoryBucketService bucketService;
+    private final StockEventJournal journal;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${inventory.projection.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${inventory.projection.refresh-ms:50}")
+    private Long refreshMs;
+
+    @Value("${inventory.projection.max-staleness-ms:1000}")
+    private Long maxStalenessMs;
+
+    @Value("${inventory.projection.batch-size:500}")
+    private Integer batchSize;
+
+    private final Map<String, Map<String, StoreView>> views = new ConcurrentHashMap<>();
+    // productId -> System.nanoTime() of its oldest change not loaded yet
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Map<String, Long> refreshing = new ConcurrentHashMap<>();
+    // products asked for that the projection lacks, or lacks a store of
+    private final Set<String> missed = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<StockEvent> unpublished = new ConcurrentLinkedQueue<>();
+    private final List<Consumer<List<StockEvent>>> listeners = new CopyOnWriteArrayList<>();
+    // revisions start from the clock, so projection ETags never match ones built from row versions
+    private final AtomicLong revisions = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private volatile boolean ready;
+    private volatile long lastPassNanos;
+    private ScheduledExecutorService refresher;
+    private Timer staleness;
+
+    public AvailabilityProjection(InventoryRepository inventoryRepository, ProductRepository productRepository,
+                                  InventoryBucketService bucketService, StockEventJournal journal,
+                                  PlatformTransactionManager transactionManager) {
+        this.inventoryRepository = inventoryRepository;
+        this.productRepository = productRepository;
+        this.bucketService = bucketService;
+        this.journal = journal;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            journal.addListener(this::onEvents);
+        }
+    }
+
+    /**
+     * Loads every product once startup data is in place, then keeps refreshing pending ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "availability-projection"));
+        refresher.execute(this::loadAll);
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers a listener for stock events whose changes the projection has loaded, so it can read
+     * them back from here. With the projection disabled, listeners get the events straight after
+     * commit.
+     */
+    public void addListener(Consumer<List<StockEvent>> listener) {
+        if (enabled) {
+            listeners.add(listener);
+        } else {
+            journal.addListener(listener);
+        }
+    }
+
+    /**
+     * The product's availability, or null when the projection cannot answer for it yet.
+     */
+    public AvailabilitySnapshot get(String productId, String storeId) {
+        Map<String, StoreView> stores = known(productId, storeId);
+        if (stores == null) {
+            return null;
+        }
+        Freshness freshness = freshness(productId);
+        List<InventoryAvailabilityResponse.StoreStockDto> availability = new ArrayList<>();
+        SortedMap<String, Long> versions = new TreeMap<>();
+        for (StoreView view : select(stores, storeId)) {
+            availability.add(freshness.apply(view.stock()));
+            versions.put(view.stock().storeId(), view.revision());
+        }
+        return new AvailabilitySnapshot(new InventoryAvailabilityResponse(productId, availability, metadata()),
+                AvailabilitySnapshot.etagOf(productId, storeId, versions));
+    }
+
+    /**
+     * Availability of several products, or null unless the projection can answer for all of them.
+     */
+    public Map<String, InventoryAvailabilityResponse> getAll(Collection<String> productIds, Collection<String> storeIds) {
+        if (!ready) {
+            return null;
+        }
+        InventoryAvailabilityResponse.MetadataDto metadata = metadata();
+        Map<String, InventoryAvailabilityResponse> responses = new LinkedHashMap<>();
+        for (String productId : productIds) {
+            Map<String, StoreView> stores = known(productId, storeIds);
+            if (stores == null) {
+                return null;
+            }
+            Freshness freshness = freshness(productId);
+            List<InventoryAvailabilityResponse.StoreStockDto> availability = new ArrayList<>();
+            for (StoreView view : stores.values()) {
+                if (storeIds == null || storeIds.isEmpty() || storeIds.contains(view.stock().storeId())) {
+                    availability.add(freshness.apply(view.stock()));
+                }
+            }
+            responses.put(productId, new InventoryAvailabilityResponse(productId, availability, metadata));
+        }
+        return responses;
+    }
+
+    /**
+     * ETag of {@link #get}, or null when the projection cannot answer for the product yet.
+     */
+    public String etag(String productId, String storeId) {
+        Map<String, StoreView> stores = known(productId, storeId);
+        if (stores == null) {
+            return null;
+        }
+        SortedMap<String, Long> versions = new TreeMap<>();
+        for (StoreView view : select(stores, storeId)) {
+            versions.put(view.stock().storeId(), view.revision());
+        }
+        return AvailabilitySnapshot.etagOf(productId, storeId, versions);
+    }
+
+    /**
+     * Available stock of the store, only while the product has no changes pending; null otherwise.
+     */
+    public Integer peekAvailable(String productId, String storeId) {
+        Map<String, StoreView> stores = ready ? views.get(productId) : null;
+        if (stores == null || pending.containsKey(productId) || refreshing.containsKey(productId)) {
+            return null;
+        }
+        StoreView view = stores.get(storeId);
+        return view != null ? view.stock().stock().available() : null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        staleness = Timer.builder("inventory.projection.staleness")
+                .description("Time from a stock change being committed to the projection serving it")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("inventory.projection.pending", pending, Map::size)
+                .description("Products with changes the projection has not loaded yet")
+                .register(registry);
+        Gauge.builder("inventory.projection.oldest.pending", this, projection -> projection.oldestPendingSeconds())
+                .description("Age in seconds of the oldest change the projection has not loaded yet")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("inventory.projection.products", views, Map::size)
+                .register(registry);
+    }
+
+    /**
+     * The product's store views if the projection has the product and every requested store, or
+     * null after queueing the product for the next pass.
+     */
+    private Map<String, StoreView> known(String productId, String storeId) {
+        return known(productId, storeId != null ? List.of(storeId) : null);
+    }
+
+    private Map<String, StoreView> known(String productId, Collection<String> storeIds) {
+        if (!ready) {
+            return null;
+        }
+        Map<String, StoreView> stores = views.get(productId);
+        if (stores != null && (storeIds == null || stores.keySet().containsAll(storeIds))) {
+            return stores;
+        }
+        missed.add(productId);
+        return null;
+    }
+
+    private void onEvents(List<StockEvent> events) {
+        long now = System.nanoTime();
+        for (StockEvent event : events) {
+            pending.putIfAbsent(event.productId(), now);
+        }
+        if (!listeners.isEmpty()) {
+            unpublished.addAll(events);
+        }
+    }
+
+    private void loadAll() {
+        long started = System.nanoTime();
+        try {
+            List<String> productIds = readOnlyTransaction.execute(status ->
+                    productRepository.findAll().stream().map(Product::getProductId).toList());
+            for (int from = 0; from < productIds.size(); from += batchSize) {
+                reload(productIds.subList(from, Math.min(productIds.size(), from + batchSize)));
+            }
+            ready = true;
+            logger.info("Availability projection loaded {} products in {} ms", productIds.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            logger.error("Failed to load the availability projection, reads stay on the write tables: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads the products with pending changes. Events received before the pass started are
+     * published once their products have been reloaded.
+     */
+    private void refresh() {
+        long started = System.nanoTime();
+        List<StockEvent> events = new ArrayList<>();
+        for (StockEvent event; (event = unpublished.poll()) != null; ) {
+            events.add(event);
+        }
+        try {
+            for (String productId : pending.keySet()) {
+                Long since = pending.remove(productId);
+                if (since != null) {
+                    refreshing.put(productId, since);
+                }
+            }
+            List<String> missing = new ArrayList<>(missed);
+            missed.removeAll(missing);
+            if (!refreshing.isEmpty() || !missing.isEmpty()) {
+                Set<String> reloads = new LinkedHashSet<>(refreshing.keySet());
+                reloads.addAll(missing);
+                List<String> productIds = new ArrayList<>(reloads);
+                for (int from = 0; from < productIds.size(); from += batchSize) {
+                    List<String> batch = productIds.subList(from, Math.min(productIds.size(), from + batchSize));
+                    reload(batch);
+                    long loaded = System.nanoTime();
+                    for (String productId : batch) {
+                        Long since = refreshing.remove(productId);
+                        if (since != null && staleness != null) {
+                            staleness.record(loaded - since, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                }
+            }
+            publish(events);
+        } catch (RuntimeException e) {
+            // put them back so the next pass retries them
+            refreshing.forEach((productId, since) -> pending.merge(productId, since, Math::min));
+            refreshing.clear();
+            unpublished.addAll(events);
+            logger.error("Availability projection refresh failed: {}", e.getMessage());
+        } finally {
+            lastPassNanos = System.nanoTime() - started;
+        }
+    }
+
+    private void reload(List<String> productIds) {
+        Map<String, Map<String, InventoryAvailabilityResponse.StoreStockDto>> loaded = readOnlyTransaction.execute(status -> {
+            Map<String, int[]> bucketSums = bucketService.sumByProductAndStore(productIds);
+            Map<String, Map<String, InventoryAvailabilityResponse.StoreStockDto>> rows = new HashMap<>();
+            for (Object[] row : inventoryRepository.findWithStoreByProductIds(productIds)) {
+                Inventory inventory = (Inventory) row[0];
+                rows.computeIfAbsent(inventory.getProductId(), ignored -> new LinkedHashMap<>())
+                        .put(inventory.getStoreId(), flatten(inventory, (Store) row[1],
+                                bucketSums.get(inventory.getProductId() + ":" + inventory.getStoreId())));
+            }
+            return rows;
+        });
+
+        for (String productId : productIds) {
+            Map<String, InventoryAvailabilityResponse.StoreStockDto> rows = loaded.get(productId);
+            if (rows == null) {
+                // no inventory rows (yet): keep reading the write tables
+                views.remove(productId);
+                continue;
+            }
+            Map<String, StoreView> previous = views.getOrDefault(productId, Map.of());
+            Map<String, StoreView> current = new LinkedHashMap<>();
+            rows.forEach((storeId, stock) -> {
+                StoreView before = previous.get(storeId);
+                current.put(storeId, before != null && before.stock().equals(stock)
+                        ? before : new StoreView(stock, revisions.incrementAndGet()));
+            });
+            views.put(productId, current);
+        }
+    }
+
+    private void publish(List<StockEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Consumer<List<StockEvent>> listener : listeners) {
+            try {
+                listener.accept(events);
+            } catch (RuntimeException e) {
+                logger.error("Availability projection listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Freshness freshness(String productId) {
+        Long since = pending.get(productId);
+        Long inFlight = refreshing.get(productId);
+        if (since == null && inFlight == null) {
+            return new Freshness("HIGH", null);
+        }
+        long oldest = since == null ? inFlight : inFlight == null ? since : Math.min(since, inFlight);
+        long ageMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+        LocalDateTime refresh = LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(refreshMs) + lastPassNanos);
+        return new Freshness(ageMs > maxStalenessMs ? "LOW" : "MEDIUM", refresh);
+    }
+
+    private double oldestPendingSeconds() {
+        long now = System.nanoTime();
+        long oldest = now;
+        for (Long since : pending.values()) {
+            oldest = Math.min(oldest, since);
+        }
+        for (Long since : refreshing.values()) {
+            oldest = Math.min(oldest, since);
+        }
+        return (now - oldest) / 1e9;
+    }
+
+    private static Collection<StoreView> select(Map<String, StoreView> stores, String storeId) {
+        if (storeId == null) {
+            return stores.values();
+        }
+        StoreView view = stores.get(storeId);
+        return view != null ? List.of(view) : List.of();
+    }
+
+    private static InventoryAvailabilityResponse.StoreStockDto flatten(Inventory inventory, Store store, int[] bucketSum) {
+        int bucketAvailable = bucketSum != null ? bucketSum[0] : 0;
+        int bucketReserved = bucketSum != null ? bucketSum[1] : 0;
+        return new InventoryAvailabilityResponse.StoreStockDto(store.getStoreId(), store.getName(),
+                new InventoryAvailabilityResponse.LocationDto(store.getLatitude(), store.getLongitude(), store.getAddress()),
+                new InventoryAvailabilityResponse.StockInfoDto(inventory.getAvailable() + bucketAvailable,
+                        inventory.getReserved() + bucketReserved, inventory.getTotal() + bucketAvailable + bucketReserved),
+                inventory.getLastUpdated(), "HIGH", null);
+    }
+
+    private static InventoryAvailabilityResponse.MetadataDto metadata() {
+        return new InventoryAvailabilityResponse.MetadataDto(UUID.randomUUID().toString(), LocalDateTime.now(), false);
+    }
+
+    private record StoreView(InventoryAvailabilityResponse.StoreStockDto stock, long revision) {}
+
+    /**
+     * Confidence and estimated refresh time of a product's rows; a null refresh time means nothing
+     * is pending.
+     */
+    private record Freshness(String confidence, LocalDateTime estimatedRefreshTime) {
+
+        InventoryAvailabilityResponse.StoreStockDto apply(InventoryAvailabilityResponse.StoreStockDto stock) {
+            return new InventoryAvailabilityResponse.StoreStockDto(stock.storeId(), stock.storeName(), stock.location(),
+                    stock.stock(), stock.lastUpdate(), confidence,
+                    estimatedRefreshTime != null ? estimatedRefreshTime : stock.lastUpdate().plusMinutes(5));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * An availability response together with the strong ETag of the row versions it was built from.
+ */
+public record AvailabilitySnapshot(InventoryAvailabilityResponse response, String etag) {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Derives the ETag from the versions of every row behind a response, keyed by
+     * {@code storeId} for inventory rows and {@code storeId#bucketIndex} for bucket rows.
+     */
+    public static String etagOf(String productId, String storeId, SortedMap<String, Long> versions) {
+        StringBuilder source = new StringBuilder(productId).append('|').append(storeId != null ? storeId : "*");
+        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+            source.append('|').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        long hash = FNV_OFFSET;
+        for (byte b : source.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+        return "\"" + Long.toHexString(hash) + "-" + versions.size() + "\"";
+    }
+}
@@ -0,0 +1,355 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.dto.StockDeltaEvent;
+import com.challenge.meli.inventory.exception.AdmissionRejectedException;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes the stock of changed rows to Server-Sent Events subscribers. Stock events mark the
+ * (productId, storeId) as dirty on every subscriber whose filter matches, once the availability
+ * projection has loaded them; a dispatch thread then sends each dirty row once, read back through
+ * the projection, so a burst of changes to one row reaches a slow subscriber as a single event with
+ * the latest stock.
+ * <p>
+ * A subscriber holds at most {@code inventory.stream.max-pending} dirty rows and is disconnected
+ * when it goes over, or when one send stays blocked longer than {@code inventory.stream.send-timeout-ms}.
+ * Only dispatch threads touch an emitter: a send blocked by a stalled client keeps its thread until
+ * the connector's write timeout, but the subscriber stops collecting rows as soon as it is evicted.
+ */
+@Service
+public class AvailabilityStream implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityStream.class);
+
+    private final InventoryService inventoryService;
+    private final AvailabilityProjection projection;
+
+    @Value("${inventory.stream.max-subscribers:10000}")
+    private Integer maxSubscribers;
+
+    @Value("${inventory.stream.max-pending:1000}")
+    private Integer maxPending;
+
+    @Value("${inventory.stream.dispatch-threads:4}")
+    private Integer dispatchThreads;
+
+    @Value("${inventory.stream.send-timeout-ms:5000}")
+    private Long sendTimeoutMs;
+
+    @Value("${inventory.stream.heartbeat-ms:15000}")
+    private Long heartbeatMs;
+
+    @Value("${inventory.stream.timeout-ms:1800000}")
+    private Long timeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscriber>> byProduct = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> byStore = new ConcurrentHashMap<>();
+
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder overflowEvictions = new LongAdder();
+    private final LongAdder slowEvictions = new LongAdder();
+
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService watchdog;
+
+    public AvailabilityStream(InventoryService inventoryService, AvailabilityProjection projection) {
+        this.inventoryService = inventoryService;
+        this.projection = projection;
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "availability-stream"));
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "availability-stream-watchdog"));
+        long period = Math.max(100, Math.min(sendTimeoutMs, heartbeatMs) / 4);
+        watchdog.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+        projection.addListener(this::onEvents);
+    }
+
+    /**
+     * Ends every stream when the context starts closing, before the web server's graceful
+     * shutdown would wait for them.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeSubscribers() {
+        subscribers.forEach(subscriber -> subscriber.evict(null));
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchdog.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Subscribes to changes of the given products and/or stores; with both, only rows matching
+     * both are sent. Every product's current stock is sent first.
+     */
+    public SseEmitter subscribe(Collection<String> productIds, Collection<String> storeIds) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new AdmissionRejectedException("Too many availability stream subscribers", 1);
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), Set.copyOf(productIds), Set.copyOf(storeIds));
+        subscriber.emitter.onCompletion(subscriber::detach);
+        subscriber.emitter.onTimeout(subscriber::detach);
+        subscriber.emitter.onError(error -> subscriber.detach());
+
+        subscribers.add(subscriber);
+        subscriber.productIds.forEach(productId -> byProduct.computeIfAbsent(productId, ignored -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        subscriber.storeIds.forEach(storeId -> byStore.computeIfAbsent(storeId, ignored -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        subscriber.productIds.forEach(productId -> subscriber.mark(productId, null));
+
+        logger.debug("Availability stream subscribed to products {} and stores {}", productIds, storeIds);
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventory.stream.subscribers", subscribers, Set::size).register(registry);
+        FunctionCounter.builder("inventory.stream.deltas", deltas, LongAdder::sum).register(registry);
+        FunctionCounter.builder("inventory.stream.evicted", overflowEvictions, LongAdder::sum)
+                .tag("reason", "overflow").register(registry);
+        FunctionCounter.builder("inventory.stream.evicted", slowEvictions, LongAdder::sum)
+                .tag("reason", "slow").register(registry);
+    }
+
+    private void onEvents(List<StockEvent> events) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (StockEvent event : events) {
+            Set<Subscriber> matching = new HashSet<>(byProduct.getOrDefault(event.productId(), Set.of()));
+            matching.addAll(byStore.getOrDefault(event.storeId(), Set.of()));
+            for (Subscriber subscriber : matching) {
+                if (subscriber.matches(event.productId(), event.storeId())) {
+                    subscriber.mark(event.productId(), event.storeId());
+                }
+            }
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+                logger.warn("Evicting availability stream subscriber blocked in a send for over {} ms", sendTimeoutMs);
+                subscriber.evict(slowEvictions);
+            } else if (now - subscriber.lastSent > TimeUnit.MILLISECONDS.toNanos(heartbeatMs)) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.productIds.forEach(productId -> byProduct.computeIfPresent(productId,
+                (ignored, set) -> set.remove(subscriber) && set.isEmpty() ? null : set));
+        subscriber.storeIds.forEach(storeId -> byStore.computeIfPresent(storeId,
+                (ignored, set) -> set.remove(subscriber) && set.isEmpty() ? null : set));
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> productIds;
+        private final Set<String> storeIds;
+
+        // productId -> dirty stores, null when all of the product's stores are
+        private Map<String, Set<String>> pending = new LinkedHashMap<>();
+        private int pendingRows;
+        private boolean scheduled;
+        private boolean heartbeatDue;
+        private volatile boolean closed;
+        private volatile boolean completed;
+
+        private volatile long sendingSince;
+        private volatile long lastSent = System.nanoTime();
+
+        private Subscriber(SseEmitter emitter, Set<String> productIds, Set<String> storeIds) {
+            this.emitter = emitter;
+            this.productIds = productIds;
+            this.storeIds = storeIds;
+        }
+
+        private boolean matches(String productId, String storeId) {
+            return (productIds.isEmpty() || productIds.contains(productId))
+                    && (storeIds.isEmpty() || storeIds.contains(storeId));
+        }
+
+        private void mark(String productId, String storeId) {
+            boolean overflow;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (pending.containsKey(productId) && pending.get(productId) == null) {
+                    // every store of the product is already pending
+                } else if (storeId == null) {
+                    Set<String> dirty = pending.put(productId, null);
+                    pendingRows += 1 - (dirty == null ? 0 : dirty.size());
+                } else if (pending.computeIfAbsent(productId, ignored -> new HashSet<>()).add(storeId)) {
+                    pendingRows++;
+                }
+                overflow = pendingRows > maxPending;
+                if (!overflow && !schedule()) {
+                    return;
+                }
+            }
+            if (overflow) {
+                logger.warn("Evicting availability stream subscriber with over {} pending rows", maxPending);
+                evict(overflowEvictions);
+            } else {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void heartbeat() {
+            synchronized (this) {
+                heartbeatDue = true;
+                if (closed || !schedule()) {
+                    return;
+                }
+            }
+            dispatcher.execute(this::drain);
+        }
+
+        private void evict(LongAdder reason) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending = new LinkedHashMap<>();
+                pendingRows = 0;
+            }
+            if (reason != null) {
+                reason.increment();
+            }
+            unregister(this);
+            // the dispatch thread completes the emitter once any send in progress returns
+            synchronized (this) {
+                if (!schedule()) {
+                    return;
+                }
+            }
+            dispatcher.execute(this::drain);
+        }
+
+        /**
+         * Called once the emitter completed, timed out or failed.
+         */
+        private void detach() {
+            completed = true;
+            synchronized (this) {
+                closed = true;
+                pending = new LinkedHashMap<>();
+                pendingRows = 0;
+            }
+            unregister(this);
+        }
+
+        private boolean schedule() {
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    Map<String, Set<String>> dirty;
+                    boolean heartbeat;
+                    synchronized (this) {
+                        if (closed) {
+                            break;
+                        }
+                        if (pending.isEmpty() && !heartbeatDue) {
+                            scheduled = false;
+                            return;
+                        }
+                        dirty = pending;
+                        heartbeat = heartbeatDue && dirty.isEmpty();
+                        pending = new LinkedHashMap<>();
+                        pendingRows = 0;
+                        heartbeatDue = false;
+                    }
+
+                    sendingSince = System.nanoTime();
+                    if (heartbeat) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                    for (Map.Entry<String, Set<String>> entry : dirty.entrySet()) {
+                        send(entry.getKey(), entry.getValue());
+                    }
+                    lastSent = System.nanoTime();
+                    sendingSince = 0;
+                }
+                if (!completed) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away; the container completes the emitter
+                logger.debug("Availability stream subscriber disconnected: {}", e.getMessage());
+                detach();
+            }
+        }
+
+        private void send(String productId, Set<String> dirtyStores) throws IOException {
+            String storeId = dirtyStores != null && dirtyStores.size() == 1 ? dirtyStores.iterator().next() : null;
+            InventoryAvailabilityResponse availability;
+            try {
+                availability = inventoryService.getVersionedAvailability(productId, storeId).response();
+            } catch (InventoryServiceException e) {
+                logger.debug("Skipping availability stream update of product {}: {}", productId, e.getMessage());
+                return;
+            }
+
+            for (InventoryAvailabilityResponse.StoreStockDto store : availability.availability()) {
+                boolean dirty = dirtyStores != null ? dirtyStores.contains(store.storeId()) : matches(productId, store.storeId());
+                if (!dirty || closed) {
+                    continue;
+                }
+                emitter.send(SseEmitter.event()
+                        .name("stock")
+                        .data(new StockDeltaEvent(productId, store.storeId(), store.stock(), store.lastUpdate()),
+                                MediaType.APPLICATION_JSON));
+                deltas.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.repository.InventoryJdbcRepository;
+import com.challenge.meli.inventory.repository.SnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synthetic catalog of {@code products} x {@code stores} inventory rows plus {@code reservations}
+ * active reservations, for benchmarking at realistic sizes instead of the 5 x 5 sample data.
+ * <p>
+ * Reservations are spread over products by a Zipf distribution (product {@code SKU0000001} is the
+ * most popular) and uniformly over stores; each row's reserved stock is the sum of its
+ * reservations, and {@code sold-out-ratio} of the rows have nothing left available. Every product
+ * draws from its own random stream derived from {@code seed}, so the data is the same for a given
+ * configuration no matter how many loader threads run. Rows are inserted with JDBC batches, one
+ * transaction per batch.
+ */
+@Service
+public class CatalogGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogGenerator.class);
+
+    private static final int BATCH_SIZE = 5000;
+    // Santiago's bounding box, where the sample stores are
+    private static final double MIN_LATITUDE = -33.65;
+    private static final double MAX_LATITUDE = -33.30;
+    private static final double MIN_LONGITUDE = -70.85;
+    private static final double MAX_LONGITUDE = -70.45;
+
+    private final SnapshotRepository snapshotRepository;
+    private final InventoryJdbcRepository inventoryJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StoreLocator storeLocator;
+
+    @Value("${inventory.generator.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${inventory.generator.products:10000}")
+    private Integer productCount;
+
+    @Value("${inventory.generator.stores:100}")
+    private Integer storeCount;
+
+    @Value("${inventory.generator.reservations:0}")
+    private Long reservationCount;
+
+    @Value("${inventory.generator.seed:42}")
+    private Long seed;
+
+    @Value("${inventory.generator.zipf-exponent:1.0}")
+    private Double zipfExponent;
+
+    @Value("${inventory.generator.sold-out-ratio:0.05}")
+    private Double soldOutRatio;
+
+    @Value("${inventory.generator.max-stock:500}")
+    private Integer maxStock;
+
+    @Value("${inventory.generator.threads:0}")
+    private Integer threads;
+
+    @Value("${inventory.reservation.default-ttl:1800}")
+    private Integer reservationTtl;
+
+    public CatalogGenerator(SnapshotRepository snapshotRepository, InventoryJdbcRepository inventoryJdbcRepository,
+                            PlatformTransactionManager transactionManager, StoreLocator storeLocator) {
+        this.snapshotRepository = snapshotRepository;
+        this.inventoryJdbcRepository = inventoryJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.storeLocator = storeLocator;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the catalog into an empty database.
+     */
+    public void generate() throws InterruptedException {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        SplittableRandom random = new SplittableRandom(seed);
+
+        List<SnapshotRepository.ProductRow> products = new ArrayList<>(BATCH_SIZE);
+        for (int p = 0; p < productCount; p++) {
+            products.add(new SnapshotRepository.ProductRow(productId(p), "Product " + (p + 1),
+                    "Synthetic product " + (p + 1), Math.round(random.nextDouble(5, 2000) * 100) / 100.0, now, now));
+            if (products.size() == BATCH_SIZE || p == productCount - 1) {
+                transactionTemplate.executeWithoutResult(status -> snapshotRepository.insertProducts(products));
+                products.clear();
+            }
+        }
+
+        List<SnapshotRepository.StoreRow> stores = new ArrayList<>(BATCH_SIZE);
+        for (int s = 0; s < storeCount; s++) {
+            stores.add(new SnapshotRepository.StoreRow(storeId(s), "Store " + (s + 1), "Synthetic address " + (s + 1),
+                    random.nextDouble(MIN_LATITUDE, MAX_LATITUDE), random.nextDouble(MIN_LONGITUDE, MAX_LONGITUDE), now));
+            if (stores.size() == BATCH_SIZE || s == storeCount - 1) {
+                transactionTemplate.executeWithoutResult(status -> snapshotRepository.insertStores(stores));
+                stores.clear();
+            }
+        }
+        storeLocator.markStale();
+
+        double[] cumulative = zipfCumulative();
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int chunk = Math.max(1, productCount / (workers * 8));
+        AtomicLong reservationsLoaded = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> loads = new ArrayList<>();
+            for (int from = 0; from < productCount; from += chunk) {
+                int first = from;
+                int last = Math.min(productCount, from + chunk);
+                loads.add(executor.submit(() -> reservationsLoaded.addAndGet(loadProducts(first, last, cumulative, now))));
+            }
+            for (Future<?> load : loads) {
+                load.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Catalog generation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        logger.info("Generated {} products x {} stores ({} inventory rows) and {} active reservations in {} ms (seed {})",
+                productCount, storeCount, (long) productCount * storeCount, reservationsLoaded.get(), elapsed, seed);
+    }
+
+    /**
+     * Inserts the inventory rows and reservations of products [first, last) and returns the number
+     * of reservations.
+     */
+    private long loadProducts(int first, int last, double[] cumulative, LocalDateTime now) {
+        List<SnapshotRepository.InventoryRow> rows = new ArrayList<>(BATCH_SIZE);
+        List<Reservation> reservations = new ArrayList<>(BATCH_SIZE);
+        String[] storeIds = new String[storeCount];
+        Arrays.setAll(storeIds, CatalogGenerator::storeId);
+        int[] reserved = new int[storeCount];
+        long loaded = 0;
+
+        for (int p = first; p < last; p++) {
+            SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + p);
+            String productId = productId(p);
+            long count = share(cumulative, p);
+            Arrays.fill(reserved, 0);
+
+            for (long r = 0; r < count; r++) {
+                int store = random.nextInt(storeCount);
+                // mostly single units, now and then a few more
+                int quantity = random.nextInt(10) == 0 ? 2 + random.nextInt(3) : 1;
+                reserved[store] += quantity;
+
+                Reservation reservation = new Reservation();
+                reservation.setReservationId("RES-" + new UUID(random.nextLong() & 0xFFFFFFFFFFFF0FFFL | 0x4000L,
+                        random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L));
+                reservation.setProductId(productId);
+                reservation.setStoreId(storeIds[store]);
+                reservation.setCustomerId("CUST" + random.nextInt(1_000_000));
+                reservation.setQuantity(quantity);
+                reservation.setStatus(Reservation.ReservationStatus.ACTIVE);
+                // at least half the TTL left, so none expire while the catalog is still loading
+                reservation.setCreatedAt(now.minusSeconds(random.nextInt(Math.max(1, reservationTtl / 2))));
+                reservation.setExpiresAt(reservation.getCreatedAt().plusSeconds(reservationTtl));
+                reservation.setConfirmationCode("CONF-" + random.nextInt(10000));
+                reservations.add(reservation);
+                if (reservations.size() == BATCH_SIZE) {
+                    flushReservations(reservations);
+                }
+            }
+            loaded += count;
+
+            for (int s = 0; s < storeCount; s++) {
+                int available = random.nextDouble() < soldOutRatio ? 0 : 1 + random.nextInt(maxStock);
+                rows.add(new SnapshotRepository.InventoryRow(productId, storeIds[s], available, reserved[s],
+                        available + reserved[s], now));
+                if (rows.size() == BATCH_SIZE) {
+                    flushRows(rows);
+                }
+            }
+        }
+        flushRows(rows);
+        flushReservations(reservations);
+        return loaded;
+    }
+
+    private void flushRows(List<SnapshotRepository.InventoryRow> rows) {
+        if (!rows.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> snapshotRepository.insertInventory(rows));
+            rows.clear();
+        }
+    }
+
+    private void flushReservations(List<Reservation> reservations) {
+        if (!reservations.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> inventoryJdbcRepository.insertReservations(reservations));
+            reservations.clear();
+        }
+    }
+
+    /**
+     * Normalized cumulative Zipf weights: product p gets the share between entries p and p + 1.
+     */
+    private double[] zipfCumulative() {
+        double[] cumulative = new double[productCount + 1];
+        for (int p = 0; p < productCount; p++) {
+            cumulative[p + 1] = cumulative[p] + 1 / Math.pow(p + 1, zipfExponent);
+        }
+        double sum = cumulative[productCount];
+        for (int p = 0; p <= productCount; p++) {
+            cumulative[p] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Reservations of product p; rounding the cumulative counts makes the shares add up exactly.
+     */
+    private long share(double[] cumulative, int p) {
+        return Math.round(reservationCount * cumulative[p + 1]) - Math.round(reservationCount * cumulative[p]);
+    }
+
+    private static String productId(int index) {
+        return String.format("SKU%07d", index + 1);
+    }
+
+    private static String storeId(int index) {
+        return String.format("STORE%05d", index + 1);
+    }
+}
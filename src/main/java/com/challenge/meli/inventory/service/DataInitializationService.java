@@ -13,6 +13,7 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -23,16 +24,35 @@ public class DataInitializationService implements ApplicationRunner {
     private final ProductRepository productRepository;
     private final StoreRepository storeRepository;
     private final InventoryRepository inventoryRepository;
+    private final InventorySnapshot inventorySnapshot;
+    private final CatalogGenerator catalogGenerator;
+    private final StoreLocator storeLocator;
 
-    public DataInitializationService(ProductRepository productRepository, StoreRepository storeRepository, InventoryRepository inventoryRepository) {
+    public DataInitializationService(ProductRepository productRepository, StoreRepository storeRepository, InventoryRepository inventoryRepository,
+                                     InventorySnapshot inventorySnapshot, CatalogGenerator catalogGenerator, StoreLocator storeLocator) {
         this.productRepository = productRepository;
         this.storeRepository = storeRepository;
         this.inventoryRepository = inventoryRepository;
+        this.inventorySnapshot = inventorySnapshot;
+        this.catalogGenerator = catalogGenerator;
+        this.storeLocator = storeLocator;
     }
 
     @Override
     @Transactional
     public void run(ApplicationArguments args) throws Exception {
+        if (catalogGenerator.isEnabled()) {
+            catalogGenerator.generate();
+            return;
+        }
+        if (inventorySnapshot.restore()) {
+            return;
+        }
+        if (productRepository.count() > 0) {
+            logger.info("Database already has data, skipping sample data");
+            return;
+        }
+
         logger.info("Initializing sample data ");
 
         initializeProducts();
@@ -65,6 +85,7 @@ public class DataInitializationService implements ApplicationRunner {
         );
 
         storeRepository.saveAll(stores);
+        storeLocator.markStale();
         logger.info("Initialized {} stores", stores.size());
     }
 
@@ -72,13 +93,14 @@ public class DataInitializationService implements ApplicationRunner {
         List<Product> products = productRepository.findAll();
         List<Store> stores = storeRepository.findAll();
 
+        List<Inventory> inventory = new ArrayList<>(products.size() * stores.size());
         for (Product product : products) {
             for (Store store : stores) {
                 int stock = (int) (Math.random() * 41) + 10;
-                Inventory inventory = new Inventory(product.getProductId(), store.getStoreId(), stock);
-                inventoryRepository.save(inventory);
+                inventory.add(new Inventory(product.getProductId(), store.getStoreId(), stock));
             }
         }
+        inventoryRepository.saveAll(inventory);
 
         logger.info("Initialized inventory for {} product-store combinations",
                 products.size() * stores.size());
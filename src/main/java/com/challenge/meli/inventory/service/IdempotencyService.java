@@ -0,0 +1,193 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.exception.IdempotencyKeyReusedException;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import com.challenge.meli.inventory.repository.IdempotencyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Replays the original response of a write retried with the same idempotency key, without running
+ * it again. Responses are kept in a bounded in-memory index and in the {@code idempotency_keys}
+ * table, so they survive restarts and are shared by every instance; both expire after
+ * {@code inventory.idempotency.ttl}.
+ * <p>
+ * A retry that arrives while the original is still running on this instance waits for it instead
+ * of running alongside it. Only successful responses are stored: a failed write can be retried with
+ * the same key. The response is stored right after the write commits, so a crash between the two
+ * leaves the key unused.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+    private final Cache<String, IdempotencyRepository.StoredResponse> responses;
+    private final Map<String, CompletableFuture<IdempotencyRepository.StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${inventory.idempotency.enabled:true}")
+    private Boolean enabled;
+
+    private final Duration ttl;
+
+    public IdempotencyService(IdempotencyRepository repository, ObjectMapper objectMapper, MeterRegistry registry,
+                              @Value("${inventory.idempotency.maximum-size:100000}") Long maximumSize,
+                              @Value("${inventory.idempotency.ttl:24h}") Duration ttl) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.ttl = ttl;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((String key, IdempotencyRepository.StoredResponse response) ->
+                        Duration.between(LocalDateTime.now(), response.expiresAt())))
+                .build();
+    }
+
+    /**
+     * Runs the write, or returns the response it produced the first time the key was used for
+     * this operation. A blank key runs the write unconditionally. Reusing a key with a different
+     * request fails with {@link IdempotencyKeyReusedException}.
+     */
+    public <T> Outcome<T> execute(String operation, String idempotencyKey, Object request, Class<T> responseType,
+                                  Supplier<T> write) {
+        if (!enabled || idempotencyKey == null || idempotencyKey.isBlank()) {
+            return new Outcome<>(write.get(), false);
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InventoryServiceException("Idempotency key is longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = operation + ":" + idempotencyKey;
+        String requestHash = fingerprint(request);
+        while (true) {
+            IdempotencyRepository.StoredResponse stored = lookup(operation, idempotencyKey, id);
+            if (stored != null) {
+                return replay(operation, idempotencyKey, requestHash, stored, responseType);
+            }
+
+            CompletableFuture<IdempotencyRepository.StoredResponse> claim = new CompletableFuture<>();
+            CompletableFuture<IdempotencyRepository.StoredResponse> running = inFlight.putIfAbsent(id, claim);
+            if (running != null) {
+                try {
+                    return replay(operation, idempotencyKey, requestHash, running.join(), responseType);
+                } catch (CompletionException e) {
+                    // the original failed and stored nothing: run this one
+                    continue;
+                }
+            }
+            try {
+                // the previous holder stores its response before releasing the claim
+                stored = responses.getIfPresent(id);
+                if (stored != null) {
+                    claim.complete(stored);
+                    return replay(operation, idempotencyKey, requestHash, stored, responseType);
+                }
+                T response = write.get();
+                stored = new IdempotencyRepository.StoredResponse(requestHash, serialize(response),
+                        LocalDateTime.now().plus(ttl));
+                store(operation, idempotencyKey, id, stored);
+                claim.complete(stored);
+                return new Outcome<>(response, false);
+            } catch (RuntimeException e) {
+                claim.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(id, claim);
+            }
+        }
+    }
+
+    public int purgeExpired() {
+        int purged = repository.purgeExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+        return purged;
+    }
+
+    private IdempotencyRepository.StoredResponse lookup(String operation, String idempotencyKey, String id) {
+        IdempotencyRepository.StoredResponse stored = responses.getIfPresent(id);
+        if (stored == null) {
+            stored = repository.find(operation, idempotencyKey).orElse(null);
+            if (stored != null) {
+                responses.put(id, stored);
+            }
+        }
+        return stored;
+    }
+
+    private void store(String operation, String idempotencyKey, String id, IdempotencyRepository.StoredResponse stored) {
+        responses.put(id, stored);
+        try {
+            if (!repository.insert(operation, idempotencyKey, stored)) {
+                logger.warn("Idempotency key {} for {} was stored concurrently by another instance", idempotencyKey, operation);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Failed to persist idempotency key {} for {}: {}", idempotencyKey, operation, e.getMessage());
+        }
+    }
+
+    private <T> Outcome<T> replay(String operation, String idempotencyKey, String requestHash,
+                                  IdempotencyRepository.StoredResponse stored, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(operation, idempotencyKey);
+        }
+        registry.counter("inventory.idempotency.replayed", "operation", operation).increment();
+        logger.debug("Replaying {} response for idempotency key {}", operation, idempotencyKey);
+        try {
+            T response = stored.body() != null ? objectMapper.readValue(stored.body(), responseType) : null;
+            return new Outcome<>(response, true);
+        } catch (JsonProcessingException e) {
+            throw new InventoryServiceException("Stored response for idempotency key " + idempotencyKey + " is unreadable", e);
+        }
+    }
+
+    private String serialize(Object response) {
+        if (response == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new InventoryServiceException("Cannot store response for idempotent replay", e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] body = request instanceof String value ? value.getBytes(StandardCharsets.UTF_8) : objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new InventoryServiceException("Cannot fingerprint request for idempotency", e);
+        }
+    }
+
+    public record Outcome<T>(T response, boolean replayed) {}
+}
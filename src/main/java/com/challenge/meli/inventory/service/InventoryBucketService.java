@@ -0,0 +1,346 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.InventoryBucket;
+import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import com.challenge.meli.inventory.repository.InventoryBucketRepository;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Split-counter stock for hot SKUs. A bucketed (productId, storeId) keeps its reservable stock
+ * spread over N {@link InventoryBucket} rows, so concurrent reservations lock different rows
+ * instead of queueing on the single {@code inventory} row.
+ * <p>
+ * Whether a row is split is read from the persisted {@code bucket_count}, so every instance
+ * routes the same way right after another one splits or merges it.
+ * <p>
+ * Split, merge, adjustment, rebalance and cart reservations lock the parent {@link Inventory}
+ * row first, then buckets by ascending index. Single reservations, releases and confirmations
+ * lock exactly one bucket and never the parent; when no single bucket can cover a request the
+ * stock is rebalanced in the caller's transaction before any bucket lock is taken, so the
+ * request keeps the parent and its buckets locked until it commits.
+ */
+@Service
+public class InventoryBucketService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryBucketService.class);
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryBucketRepository bucketRepository;
+    private final ReservationRepository reservationRepository;
+    private final AvailabilityCache availabilityCache;
+
+    public InventoryBucketService(InventoryRepository inventoryRepository, InventoryBucketRepository bucketRepository,
+                                  ReservationRepository reservationRepository, AvailabilityCache availabilityCache) {
+        this.inventoryRepository = inventoryRepository;
+        this.bucketRepository = bucketRepository;
+        this.reservationRepository = reservationRepository;
+        this.availabilityCache = availabilityCache;
+    }
+
+    public boolean isBucketed(String productId, String storeId) {
+        return inventoryRepository.findBucketCount(productId, storeId).orElse(0) > 0;
+    }
+
+    @Transactional
+    public void split(String productId, String storeId, int bucketCount) {
+        if (bucketCount < 2) {
+            throw new InventoryServiceException("Bucket count must be at least 2");
+        }
+        Inventory inventory = lockInventory(productId, storeId);
+        if (inventory.isBucketed()) {
+            throw new InventoryServiceException("Inventory is already split: " + productId + " in store " + storeId);
+        }
+
+        int stock = inventory.getAvailable();
+        for (int i = 0; i < bucketCount; i++) {
+            bucketRepository.save(new InventoryBucket(productId, storeId, i, share(stock, bucketCount, i)));
+        }
+        inventory.adjustStock(-stock);
+        inventory.setBucketCount(bucketCount);
+        inventory.setLastUpdated(LocalDateTime.now());
+        inventoryRepository.save(inventory);
+        availabilityCache.invalidate(productId);
+
+        logger.info("Split inventory {}:{} into {} buckets ({} units)", productId, storeId, bucketCount, stock);
+    }
+
+    @Transactional
+    public void merge(String productId, String storeId) {
+        Inventory inventory = lockInventory(productId, storeId);
+        if (!inventory.isBucketed()) {
+            throw new InventoryServiceException("Inventory is not split: " + productId + " in store " + storeId);
+        }
+
+        List<InventoryBucket> buckets = bucketRepository.findAllWithLock(productId, storeId);
+        int available = buckets.stream().mapToInt(InventoryBucket::getAvailable).sum();
+        int reserved = buckets.stream().mapToInt(InventoryBucket::getReserved).sum();
+
+        inventory.setReserved(inventory.getReserved() + reserved);
+        inventory.adjustStock(available);
+        inventory.setBucketCount(0);
+        inventory.setLastUpdated(LocalDateTime.now());
+        inventoryRepository.save(inventory);
+        reservationRepository.clearBucketIndex(productId, storeId);
+        bucketRepository.deleteByProductIdAndStoreId(productId, storeId);
+        availabilityCache.invalidate(productId);
+
+        logger.info("Merged {} buckets back into inventory {}:{}", buckets.size(), productId, storeId);
+    }
+
+    /**
+     * Reserves {@code quantity} from one bucket and returns its index. Must run inside the
+     * caller's transaction while it holds no other inventory lock.
+     */
+    public Integer reserve(String productId, String storeId, Integer quantity) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Integer> candidates = bucketRepository.findReservableBucketIndexes(productId, storeId, quantity);
+
+            if (candidates.isEmpty()) {
+                int available = bucketRepository.sumAvailable(productId, storeId)
+                        + inventoryRepository.findAvailableQuantity(productId, storeId).orElse(0);
+                if (attempt == 0 && available >= quantity) {
+                    if (!rebalance(productId, storeId)) {
+                        throw new ConcurrencyFailureException(
+                                "Inventory " + productId + " in store " + storeId + " is no longer split, please retry");
+                    }
+                    continue;
+                }
+                throw new InsufficientStockException(productId, storeId, quantity, available);
+            }
+
+            Integer index = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+            InventoryBucket bucket = bucketRepository.findBucketWithLock(productId, storeId, index)
+                    .orElseThrow(() -> new InventoryServiceException("Bucket not found: " + index));
+            if (!bucket.canReserve(quantity)) {
+                throw new OptimisticLockingFailureException("Bucket " + index + " was drained concurrently");
+            }
+            bucket.reserve(quantity);
+            bucketRepository.save(bucket);
+            return index;
+        }
+        throw new OptimisticLockingFailureException("Buckets were drained concurrently during rebalance");
+    }
+
+    /**
+     * Reserves {@code quantity} from a split row whose parent inventory row the caller already
+     * holds locked, and returns the bucket index. Locks every bucket of the row in index order;
+     * when no single bucket covers the quantity but their sum does, stock is moved from the
+     * others into the fullest bucket first.
+     */
+    public Integer reserveLocked(String productId, String storeId, Integer quantity) {
+        List<InventoryBucket> buckets = bucketRepository.findAllWithLock(productId, storeId);
+        int available = buckets.stream().mapToInt(InventoryBucket::getAvailable).sum();
+        if (available < quantity) {
+            throw new InsufficientStockException(productId, storeId, quantity, available);
+        }
+
+        InventoryBucket target = buckets.stream()
+                .max(Comparator.comparingInt(InventoryBucket::getAvailable))
+                .orElseThrow();
+        for (InventoryBucket bucket : buckets) {
+            int missing = quantity - target.getAvailable();
+            if (missing <= 0) {
+                break;
+            }
+            if (bucket != target && bucket.getAvailable() > 0) {
+                int moved = Math.min(missing, bucket.getAvailable());
+                bucket.setAvailable(bucket.getAvailable() - moved);
+                bucket.setLastUpdated(LocalDateTime.now());
+                target.setAvailable(target.getAvailable() + moved);
+                bucketRepository.save(bucket);
+            }
+        }
+        target.reserve(quantity);
+        bucketRepository.save(target);
+        return target.getBucketIndex();
+    }
+
+    /**
+     * Locks every bucket of the split rows holding the given reservations, row by row in
+     * (productId, storeId) order and by index within a row, and returns them keyed by
+     * {@code productId:storeId#bucketIndex}.
+     */
+    public Map<String, InventoryBucket> lockBuckets(Collection<Reservation> reservations) {
+        Map<String, InventoryBucket> locked = new HashMap<>();
+        reservations.stream()
+                .map(reservation -> List.of(reservation.getProductId(), reservation.getStoreId()))
+                .distinct()
+                .sorted(Comparator.comparing((List<String> row) -> row.get(0)).thenComparing(row -> row.get(1)))
+                .forEach(row -> bucketRepository.findAllWithLock(row.get(0), row.get(1)).forEach(bucket ->
+                        locked.put(key(bucket.getProductId(), bucket.getStoreId()) + "#" + bucket.getBucketIndex(), bucket)));
+        return locked;
+    }
+
+    /**
+     * Applies settled reservations to buckets returned by {@link #lockBuckets}, one write per
+     * bucket with the summed quantity.
+     */
+    public void settle(Collection<Reservation> reservations, Map<String, InventoryBucket> locked, boolean confirm) {
+        Map<InventoryBucket, Integer> quantities = new IdentityHashMap<>();
+        for (Reservation reservation : reservations) {
+            InventoryBucket bucket = locked.get(key(reservation.getProductId(), reservation.getStoreId())
+                    + "#" + reservation.getBucketIndex());
+            if (bucket == null) {
+                throw new InventoryServiceException("Inventory bucket not found");
+            }
+            quantities.merge(bucket, reservation.getQuantity(), Integer::sum);
+        }
+        quantities.forEach((bucket, quantity) -> {
+            if (confirm) {
+                bucket.confirmSale(quantity);
+            } else {
+                bucket.releaseReservation(quantity);
+            }
+        });
+        bucketRepository.saveAll(quantities.keySet());
+    }
+
+    public void releaseReservation(Reservation reservation) {
+        InventoryBucket bucket = lockBucket(reservation);
+        bucket.releaseReservation(reservation.getQuantity());
+        bucketRepository.save(bucket);
+    }
+
+    public void confirmSale(Reservation reservation) {
+        InventoryBucket bucket = lockBucket(reservation);
+        bucket.confirmSale(reservation.getQuantity());
+        bucketRepository.save(bucket);
+    }
+
+    /**
+     * Applies a stock delta to a split row and spreads the resulting stock evenly over its
+     * buckets. Returns the summed total as {@code [previous, new]}.
+     */
+    @Transactional
+    public int[] adjustStock(String productId, String storeId, Integer delta) {
+        Inventory inventory = lockInventory(productId, storeId);
+        List<InventoryBucket> buckets = bucketRepository.findAllWithLock(productId, storeId);
+        int previousTotal = inventory.getTotal() + buckets.stream().mapToInt(InventoryBucket::getTotal).sum();
+
+        applyDelta(inventory, buckets, delta);
+        inventoryRepository.save(inventory);
+
+        return new int[]{previousTotal, previousTotal + delta};
+    }
+
+    /**
+     * Returns the bucket counters of every split row of a product, keyed by store id, as
+     * {@code [available, reserved]}.
+     */
+    public Map<String, int[]> sumByStore(String productId) {
+        Map<String, int[]> sums = new HashMap<>();
+        for (InventoryBucket bucket : bucketRepository.findByProductId(productId)) {
+            int[] sum = sums.computeIfAbsent(bucket.getStoreId(), ignored -> new int[2]);
+            sum[0] += bucket.getAvailable();
+            sum[1] += bucket.getReserved();
+        }
+        return sums;
+    }
+
+    /**
+     * Versions of every bucket of a product keyed by {@code storeId#bucketIndex}, for ETags.
+     */
+    public Map<String, Long> versions(String productId, String storeId) {
+        Map<String, Long> versions = new HashMap<>();
+        for (Object[] row : bucketRepository.findVersionsByProductId(productId)) {
+            if (storeId == null || storeId.equals(row[0])) {
+                versions.put(row[0] + "#" + row[1], (Long) row[2]);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Same as {@link #sumByStore(String)} for several products at once, keyed by
+     * {@code productId:storeId}.
+     */
+    public Map<String, int[]> sumByProductAndStore(Collection<String> productIds) {
+        Map<String, int[]> sums = new HashMap<>();
+        for (InventoryBucket bucket : bucketRepository.findByProductIdIn(productIds)) {
+            int[] sum = sums.computeIfAbsent(key(bucket.getProductId(), bucket.getStoreId()), ignored -> new int[2]);
+            sum[0] += bucket.getAvailable();
+            sum[1] += bucket.getReserved();
+        }
+        return sums;
+    }
+
+    /**
+     * Spreads the stock of a split row evenly over its buckets, in the caller's transaction.
+     * Returns false, changing nothing, if the row has been merged in the meantime.
+     */
+    private boolean rebalance(String productId, String storeId) {
+        Inventory inventory = lockInventory(productId, storeId);
+        List<InventoryBucket> buckets = bucketRepository.findAllWithLock(productId, storeId);
+        if (!inventory.isBucketed() || buckets.isEmpty()) {
+            return false;
+        }
+        applyDelta(inventory, buckets, 0);
+        inventoryRepository.save(inventory);
+        logger.debug("Rebalanced buckets of {}:{}", productId, storeId);
+        return true;
+    }
+
+    /**
+     * Moves all available stock of a split row, plus {@code delta}, into its buckets. Refuses rows
+     * that are not split, whose stock would otherwise be dropped.
+     */
+    private void applyDelta(Inventory inventory, List<InventoryBucket> buckets, int delta) {
+        if (!inventory.isBucketed() || buckets.isEmpty()) {
+            throw new InventoryServiceException("Inventory is not split: " + inventory.getProductId()
+                    + " in store " + inventory.getStoreId());
+        }
+        int stock = inventory.getAvailable() + delta + buckets.stream().mapToInt(InventoryBucket::getAvailable).sum();
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        inventory.adjustStock(-inventory.getAvailable());
+        inventory.setLastUpdated(LocalDateTime.now());
+        redistribute(buckets, stock);
+    }
+
+    private void redistribute(List<InventoryBucket> buckets, int stock) {
+        for (int i = 0; i < buckets.size(); i++) {
+            InventoryBucket bucket = buckets.get(i);
+            bucket.setAvailable(share(stock, buckets.size(), i));
+            bucket.setLastUpdated(LocalDateTime.now());
+        }
+        bucketRepository.saveAll(buckets);
+    }
+
+    private Inventory lockInventory(String productId, String storeId) {
+        return inventoryRepository.findByProductIdAndStoreIdWithLock(productId, storeId)
+                .orElseThrow(() -> new InventoryServiceException("No inventory found for product " + productId + " in store " + storeId));
+    }
+
+    private InventoryBucket lockBucket(Reservation reservation) {
+        return bucketRepository.findBucketWithLock(reservation.getProductId(), reservation.getStoreId(), reservation.getBucketIndex())
+                .orElseThrow(() -> new InventoryServiceException("Inventory bucket not found"));
+    }
+
+    private static int share(int stock, int buckets, int index) {
+        return stock / buckets + (index < stock % buckets ? 1 : 0);
+    }
+
+    private static String key(String productId, String storeId) {
+        return productId + ":" + storeId;
+    }
+}
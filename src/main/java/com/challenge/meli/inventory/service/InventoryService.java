@@ -1,34 +1,49 @@
 package com.challenge.meli.inventory.service;
 
 import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.InventoryBucket;
 import com.challenge.meli.inventory.domain.Product;
 import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.domain.StockEvent;
 import com.challenge.meli.inventory.domain.Store;
 import com.challenge.meli.inventory.dto.*;
 import com.challenge.meli.inventory.exception.InsufficientStockException;
 import com.challenge.meli.inventory.exception.InventoryServiceException;
 import com.challenge.meli.inventory.exception.ReservationExpiredException;
+import com.challenge.meli.inventory.exception.ReservationNotActiveException;
 import com.challenge.meli.inventory.exception.ReservationNotFoundException;
+import com.challenge.meli.inventory.repository.InventoryJdbcRepository;
 import com.challenge.meli.inventory.repository.InventoryRepository;
 import com.challenge.meli.inventory.repository.ProductRepository;
 import com.challenge.meli.inventory.repository.ReservationRepository;
 import com.challenge.meli.inventory.repository.StoreRepository;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -41,25 +56,89 @@ public class InventoryService {
     private final ProductRepository productRepository;
     private final StoreRepository storeRepository;
     private final ReservationRepository reservationRepository;
+    private final InventoryBucketService bucketService;
+    private final InventoryJdbcRepository jdbcRepository;
+    private final StockAdjustmentPipeline adjustmentPipeline;
+    private final ReservationExpiryWheel expiryWheel;
+    private final StockEventJournal journal;
 
     @Value("${inventory.reservation.default-ttl:1800}")
     private Integer defaultReservationTtl;
 
-    private final Map<String, InventoryAvailabilityResponse> availabilityCache = new ConcurrentHashMap<>();
+    @Value("${inventory.reservation.strategy:locking}")
+    private String reservationStrategy;
 
-    public InventoryService(InventoryRepository inventoryRepository, ProductRepository productRepository, StoreRepository storeRepository, ReservationRepository reservationRepository) {
+    private final AvailabilityCache availabilityCache;
+    private final AvailabilityProjection projection;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public InventoryService(InventoryRepository inventoryRepository, ProductRepository productRepository, StoreRepository storeRepository, ReservationRepository reservationRepository, InventoryBucketService bucketService, InventoryJdbcRepository jdbcRepository, StockAdjustmentPipeline adjustmentPipeline, ReservationExpiryWheel expiryWheel, AvailabilityCache availabilityCache, AvailabilityProjection projection, PlatformTransactionManager transactionManager, StockEventJournal journal) {
         this.inventoryRepository = inventoryRepository;
         this.productRepository = productRepository;
         this.storeRepository = storeRepository;
         this.reservationRepository = reservationRepository;
+        this.bucketService = bucketService;
+        this.jdbcRepository = jdbcRepository;
+        this.adjustmentPipeline = adjustmentPipeline;
+        this.expiryWheel = expiryWheel;
+        this.journal = journal;
+        this.availabilityCache = availabilityCache;
+        this.projection = projection;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @CircuitBreaker(name = "inventory-service", fallbackMethod = "getAvailabilityFallback")
-    @Cacheable(value = "inventory-availability", key = "#productId + ':' + (#storeId ?: 'all')")
-    @Transactional(readOnly = true)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "availability"}, histogram = true)
     public InventoryAvailabilityResponse getAvailability(String productId, String storeId) {
+        return versionedAvailability(productId, storeId).response();
+    }
+
+    @CircuitBreaker(name = "inventory-service", fallbackMethod = "getVersionedAvailabilityFallback")
+    @Timed(value = "inventory.operation", extraTags = {"operation", "availability"}, histogram = true)
+    public AvailabilitySnapshot getVersionedAvailability(String productId, String storeId) {
+        return versionedAvailability(productId, storeId);
+    }
+
+    /**
+     * Current ETag of an availability response, taken from the cache when present or from a
+     * version-only query otherwise. Returns null when there is nothing to compare against.
+     */
+    @Timed(value = "inventory.operation", extraTags = {"operation", "availability_etag"}, histogram = true)
+    public String getAvailabilityEtag(String productId, String storeId) {
+        String projected = projection.etag(productId, storeId);
+        if (projected != null) {
+            return projected;
+        }
+
+        String cached = availabilityCache.peekEtag(productId, storeId);
+        if (cached != null) {
+            return cached;
+        }
+
+        SortedMap<String, Long> versions = new TreeMap<>(bucketService.versions(productId, storeId));
+        List<Object[]> rows = storeId != null
+                ? inventoryRepository.findVersionsByProductIdAndStoreId(productId, storeId)
+                : inventoryRepository.findVersionsByProductId(productId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        rows.forEach(row -> versions.put((String) row[0], (Long) row[1]));
+        return AvailabilitySnapshot.etagOf(productId, storeId, versions);
+    }
+
+    private AvailabilitySnapshot versionedAvailability(String productId, String storeId) {
         logger.debug("Getting availability for product {} in store {}", productId, storeId);
 
+        AvailabilitySnapshot projected = projection.get(productId, storeId);
+        if (projected != null) {
+            return projected;
+        }
+        return availabilityCache.get(productId, storeId,
+                () -> readOnlyTransaction.execute(status -> loadAvailability(productId, storeId)));
+    }
+
+    private AvailabilitySnapshot loadAvailability(String productId, String storeId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(()-> new InventoryServiceException("Product not found: " + productId));
 
@@ -73,25 +152,90 @@ public class InventoryService {
             inventories = inventoryRepository.findByProductId(productId);
         }
 
+        Map<String, int[]> bucketSums = bucketService.sumByStore(productId);
+
         List<InventoryAvailabilityResponse.StoreStockDto> availability = inventories.stream()
-                .map(this::mapToStoreStockDto)
+                .map(inventory -> mapToStoreStockDto(inventory, bucketSums.get(inventory.getStoreId())))
                 .collect(Collectors.toList());
 
+        SortedMap<String, Long> versions = new TreeMap<>(bucketService.versions(productId, storeId));
+        inventories.forEach(inventory -> versions.put(inventory.getStoreId(), inventory.getVersion()));
+
         String requestId = UUID.randomUUID().toString();
         InventoryAvailabilityResponse.MetadataDto metadata =
         new InventoryAvailabilityResponse.MetadataDto(requestId, LocalDateTime.now(), false);
 
-        return new InventoryAvailabilityResponse(productId, availability, metadata);
+        return new AvailabilitySnapshot(new InventoryAvailabilityResponse(productId, availability, metadata),
+                AvailabilitySnapshot.etagOf(productId, storeId, versions));
+    }
+
+    /**
+     * Availability of several products, from the projection when it has them all, otherwise
+     * resolved with a constant number of queries: one for the products, one joining inventory with
+     * store, and one for bucket sums when any row is split. Unknown product ids are left out of the
+     * result.
+     */
+    @Timed(value = "inventory.operation", extraTags = {"operation", "batch_availability"}, histogram = true)
+    public Map<String, InventoryAvailabilityResponse> getAvailability(List<String> productIds, List<String> storeIds) {
+        logger.debug("Getting batch availability for {} products", productIds.size());
+
+        Set<String> uniqueProductIds = new LinkedHashSet<>(productIds);
+        Map<String, InventoryAvailabilityResponse> projected = projection.getAll(uniqueProductIds, storeIds);
+        if (projected != null) {
+            return projected;
+        }
+        return readOnlyTransaction.execute(status -> loadAvailability(uniqueProductIds, storeIds));
+    }
+
+    private Map<String, InventoryAvailabilityResponse> loadAvailability(Set<String> uniqueProductIds, List<String> storeIds) {
+        Set<String> knownProductIds = productRepository.findAllById(uniqueProductIds).stream()
+                .map(Product::getProductId)
+                .collect(Collectors.toSet());
+        if (knownProductIds.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object[]> rows = storeIds == null || storeIds.isEmpty()
+                ? inventoryRepository.findWithStoreByProductIds(knownProductIds)
+                : inventoryRepository.findWithStoreByProductIdsAndStoreIds(knownProductIds, storeIds);
+        Map<String, int[]> bucketSums = bucketService.sumByProductAndStore(knownProductIds);
+
+        Map<String, List<InventoryAvailabilityResponse.StoreStockDto>> availabilityByProduct = new HashMap<>();
+        for (Object[] row : rows) {
+            Inventory inventory = (Inventory) row[0];
+            Store store = (Store) row[1];
+            availabilityByProduct.computeIfAbsent(inventory.getProductId(), ignored -> new ArrayList<>())
+                    .add(mapToStoreStockDto(inventory, store,
+                            bucketSums.get(inventory.getProductId() + ":" + inventory.getStoreId())));
+        }
+
+        String requestId = UUID.randomUUID().toString();
+        InventoryAvailabilityResponse.MetadataDto metadata =
+                new InventoryAvailabilityResponse.MetadataDto(requestId, LocalDateTime.now(), false);
+
+        Map<String, InventoryAvailabilityResponse> responses = new LinkedHashMap<>();
+        for (String productId : uniqueProductIds) {
+            if (knownProductIds.contains(productId)) {
+                responses.put(productId, new InventoryAvailabilityResponse(productId,
+                        availabilityByProduct.getOrDefault(productId, List.of()), metadata));
+            }
+        }
+        return responses;
     }
 
     @Retryable(value = {OptimisticLockingFailureException.class},
                 maxAttempts = 3,
                 backoff = @Backoff(delay = 100))
     @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "reserve"}, histogram = true)
     public ReservationResponse reserveProduct(ReservationRequest request){
         logger.info("Creating rreservation for product {} in store {} with quantity {}",
                 request.productId(), request.storeId(), request.quantity());
 
+        if (bucketService.isBucketed(request.productId(), request.storeId())) {
+            return reserveFromBuckets(request);
+        }
+
         Inventory inventory = inventoryRepository.findByProductIdAndStoreIdWithLock(request.productId(), request.storeId())
                 .orElseThrow(() -> new InventoryServiceException("No inventory found for product " + request.productId() + " in store " + request.storeId()));
 
@@ -111,21 +255,236 @@ public class InventoryService {
         inventory.reserve(request.quantity());
         inventoryRepository.save(inventory);
         reservationRepository.save(reservation);
+        expiryWheel.schedule(reservation);
+        journal.record(StockEvent.reserve(reservation));
+
+        invalidateAvailabilityCache(request.productId());
+
+        logger.info("Reservation created successfully: {}", reservationId);
+
+        return toReservationResponse(reservation);
+    }
+
+    /**
+     * Whether reserve, release and confirm use single conditional UPDATEs
+     * ({@code inventory.reservation.strategy=conditional}) instead of locked reads.
+     */
+    public boolean usesConditionalUpdates() {
+        return "conditional".equalsIgnoreCase(reservationStrategy);
+    }
+
+    /**
+     * {@link #reserveProduct} as one conditional UPDATE that only applies while the row still has
+     * the stock, followed by the reservation insert, at READ COMMITTED: no locked read and no
+     * version check. The row lock taken by the UPDATE is held only until commit. Split rows are
+     * reserved from a bucket in the same transaction, which is retried like
+     * {@link #reserveFromBuckets} when the chosen bucket was drained concurrently.
+     */
+    @Retryable(value = {OptimisticLockingFailureException.class},
+                maxAttempts = 3,
+                backoff = @Backoff(delay = 100))
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "reserve_conditional"}, histogram = true)
+    public ReservationResponse reserveConditionally(ReservationRequest request) {
+        logger.info("Creating conditional reservation for product {} in store {} with quantity {}",
+                request.productId(), request.storeId(), request.quantity());
+
+        if (!jdbcRepository.reserveStock(request.productId(), request.storeId(), request.quantity())) {
+            Inventory inventory = inventoryRepository.findByProductIdAndStoreId(request.productId(), request.storeId())
+                    .orElseThrow(() -> new InventoryServiceException("No inventory found for product " + request.productId() + " in store " + request.storeId()));
+            if (inventory.isBucketed()) {
+                return reserveInBucket(request);
+            }
+            throw new InsufficientStockException(
+                    request.productId(), request.storeId(), request.quantity(), inventory.getAvailable()
+            );
+        }
+
+        String reservationId = "RES-" +  UUID.randomUUID().toString();
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(request.reservationTtl() != null ? request.reservationTtl() : defaultReservationTtl);
+
+        Reservation reservation = new Reservation(
+                reservationId, request.productId(), request.storeId(), request.customerId(), request.quantity(), expiresAt
+        );
+
+        jdbcRepository.insertReservations(List.of(reservation));
+        expiryWheel.schedule(reservation);
+        journal.record(StockEvent.reserve(reservation));
 
         invalidateAvailabilityCache(request.productId());
 
         logger.info("Reservation created successfully: {}", reservationId);
 
+        return toReservationResponse(reservation);
+    }
+
+    /**
+     * Reserves a group of requests for the same (productId, storeId) under a single row lock,
+     * applying them in order. Each entry of the result is either a response or the
+     * {@link InsufficientStockException} of the request at the same position.
+     */
+    @Retryable(value = {OptimisticLockingFailureException.class},
+                maxAttempts = 3,
+                backoff = @Backoff(delay = 100))
+    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "reserve_batch"}, histogram = true)
+    public List<BatchReservation> reserveBatch(String productId, String storeId, List<ReservationRequest> requests) {
+        logger.info("Creating {} combined reservations for product {} in store {}", requests.size(), productId, storeId);
+
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreIdWithLock(productId, storeId)
+                .orElseThrow(() -> new InventoryServiceException("No inventory found for product " + productId + " in store " + storeId));
+
+        List<BatchReservation> results = new ArrayList<>(requests.size());
+        List<Reservation> reservations = new ArrayList<>(requests.size());
+
+        for (ReservationRequest request : requests) {
+            if (!inventory.canReserve(request.quantity())) {
+                results.add(new BatchReservation(null, new InsufficientStockException(
+                        productId, storeId, request.quantity(), inventory.getAvailable())));
+                continue;
+            }
+
+            String reservationId = "RES-" +  UUID.randomUUID().toString();
+            LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(request.reservationTtl() != null ? request.reservationTtl() : defaultReservationTtl);
+            Reservation reservation = new Reservation(
+                    reservationId, productId, storeId, request.customerId(), request.quantity(), expiresAt
+            );
+
+            inventory.reserve(request.quantity());
+            reservations.add(reservation);
+            results.add(new BatchReservation(toReservationResponse(reservation), null));
+        }
+
+        if (!reservations.isEmpty()) {
+            inventoryRepository.save(inventory);
+            jdbcRepository.insertReservations(reservations);
+            reservations.forEach(expiryWheel::schedule);
+            journal.recordAll(reservations.stream().map(StockEvent::reserve).toList());
+            invalidateAvailabilityCache(productId);
+        }
+
+        logger.info("Combined reservation batch for {}:{} created {} of {}", productId, storeId, reservations.size(), requests.size());
+        return results;
+    }
+
+    public record BatchReservation(ReservationResponse response, InventoryServiceException error) {}
+
+    @Retryable(value = {OptimisticLockingFailureException.class},
+                maxAttempts = 3,
+                backoff = @Backoff(delay = 100))
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "reserve_bucket"}, histogram = true)
+    public ReservationResponse reserveFromBuckets(ReservationRequest request) {
+        logger.info("Creating reservation for split product {} in store {} with quantity {}",
+                request.productId(), request.storeId(), request.quantity());
+
+        return reserveInBucket(request);
+    }
+
+    private ReservationResponse reserveInBucket(ReservationRequest request) {
+        Integer bucketIndex = bucketService.reserve(request.productId(), request.storeId(), request.quantity());
+
+        String reservationId = "RES-" +  UUID.randomUUID().toString();
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(request.reservationTtl() != null ? request.reservationTtl() : defaultReservationTtl);
+
+        Reservation reservation = new Reservation(
+                reservationId, request.productId(), request.storeId(), request.customerId(), request.quantity(), expiresAt
+        );
+        reservation.setBucketIndex(bucketIndex);
+        reservationRepository.save(reservation);
+        expiryWheel.schedule(reservation);
+        journal.record(StockEvent.reserve(reservation));
+
+        invalidateAvailabilityCache(request.productId());
+
+        logger.info("Reservation created successfully from bucket {}: {}", bucketIndex, reservationId);
+
+        return toReservationResponse(reservation);
+    }
+
+    /**
+     * Reserves every line of a cart or none. The inventory rows of all lines are locked with one
+     * statement in (productId, storeId) order, split rows then lock their buckets, and the
+     * reservations are inserted in one JDBC batch. Lines on the same row are applied in order.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "reserve_cart"}, histogram = true)
+    public CartReservationResponse reserveCart(CartReservationRequest request) {
+        List<CartReservationRequest.LineDto> lines = request.lines();
+        logger.info("Creating cart reservation with {} lines for customer {}", lines.size(), request.customerId());
+
+        SortedMap<InventoryJdbcRepository.InventoryKey, List<Integer>> linesByRow = new TreeMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            CartReservationRequest.LineDto line = lines.get(i);
+            linesByRow.computeIfAbsent(new InventoryJdbcRepository.InventoryKey(line.productId(), line.storeId()),
+                    ignored -> new ArrayList<>()).add(i);
+        }
+
+        Map<InventoryJdbcRepository.InventoryKey, InventoryJdbcRepository.InventoryRow> locked = new HashMap<>();
+        for (InventoryJdbcRepository.InventoryRow row : jdbcRepository.lockInventoryRows(linesByRow.keySet())) {
+            locked.put(new InventoryJdbcRepository.InventoryKey(row.productId(), row.storeId()), row);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusSeconds(request.reservationTtl() != null ? request.reservationTtl() : defaultReservationTtl);
+        Reservation[] reservations = new Reservation[lines.size()];
+        List<InventoryJdbcRepository.InventoryCounters> counters = new ArrayList<>();
+
+        linesByRow.forEach((key, indexes) -> {
+            InventoryJdbcRepository.InventoryRow row = locked.get(key);
+            if (row == null) {
+                throw new InventoryServiceException("No inventory found for product " + key.productId() + " in store " + key.storeId());
+            }
+            boolean bucketed = bucketService.isBucketed(key.productId(), key.storeId());
+            int available = row.available();
+            int reserved = row.reserved();
+            for (Integer index : indexes) {
+                Integer quantity = lines.get(index).quantity();
+                Reservation reservation = new Reservation("RES-" + UUID.randomUUID(), key.productId(), key.storeId(),
+                        request.customerId(), quantity, expiresAt);
+                if (bucketed) {
+                    reservation.setBucketIndex(bucketService.reserveLocked(key.productId(), key.storeId(), quantity));
+                } else if (available < quantity) {
+                    throw new InsufficientStockException(key.productId(), key.storeId(), quantity, available);
+                } else {
+                    available -= quantity;
+                    reserved += quantity;
+                }
+                reservations[index] = reservation;
+            }
+            if (!bucketed) {
+                counters.add(new InventoryJdbcRepository.InventoryCounters(row.inventoryId(), available, reserved,
+                        available + reserved, now));
+            }
+        });
+
+        List<Reservation> created = Arrays.asList(reservations);
+        jdbcRepository.updateInventoryCounters(counters);
+        jdbcRepository.insertReservations(created);
+        created.forEach(expiryWheel::schedule);
+        journal.recordAll(created.stream().map(StockEvent::reserve).toList());
+        linesByRow.keySet().stream()
+                .map(InventoryJdbcRepository.InventoryKey::productId)
+                .distinct()
+                .forEach(this::invalidateAvailabilityCache);
+
+        logger.info("Cart reservation created {} reservations over {} rows", created.size(), linesByRow.size());
+        return new CartReservationResponse(created.stream().map(this::toReservationResponse).toList(), expiresAt);
+    }
+
+    private ReservationResponse toReservationResponse(Reservation reservation) {
+        String reservationId = reservation.getReservationId();
+
         Map<String, String> actions = Map.of(
             "confirm", "/api/v1/inventory/confirm/" + reservationId,
             "release", "/api/v1/inventory/release/" + reservationId,
-            "extend", "/api/v1/inventory/extend" + reservationId
+            "extend", "/api/v1/inventory/extend/" + reservationId
         );
 
         return new ReservationResponse(reservationId, "CONFIRMED",
-                request.productId(),
-                request.storeId(), request.quantity(),
-                expiresAt, reservation.getConfirmationCode(),
+                reservation.getProductId(),
+                reservation.getStoreId(), reservation.getQuantity(),
+                reservation.getExpiresAt(), reservation.getConfirmationCode(),
                 actions);
 
     }
@@ -134,6 +493,7 @@ public class InventoryService {
                 maxAttempts = 3,
                 backoff = @Backoff(delay = 100))
     @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "release"}, histogram = true)
     public void releaseReservation(String reservationId){
         logger.info("Releasingn rreserrvation: {}", reservationId);
 
@@ -141,15 +501,20 @@ public class InventoryService {
                 .orElseThrow(() -> new ReservationNotFoundException(reservationId));
 
         if (!reservation.isActive()){
-            throw new InventoryServiceException("Reservation is not active: " + reservationId);
+            throw new ReservationNotActiveException(reservationId);
         }
 
-        Inventory inventory = inventoryRepository.findByProductIdAndStoreIdWithLock(reservation.getProductId(),
-                reservation.getStoreId())
-                .orElseThrow(() -> new InventoryServiceException("Inventory not found"));
+        if (reservation.getBucketIndex() != null) {
+            bucketService.releaseReservation(reservation);
+        } else {
+            Inventory inventory = inventoryRepository.findByProductIdAndStoreIdWithLock(reservation.getProductId(),
+                    reservation.getStoreId())
+                    .orElseThrow(() -> new InventoryServiceException("Inventory not found"));
 
-        inventory.releaseReservation(reservation.getQuantity());
+            inventory.releaseReservation(reservation.getQuantity());
+        }
         reservation.cancel();
+        journal.record(StockEvent.release(reservation));
 
         invalidateAvailabilityCache(reservation.getProductId());
 
@@ -160,6 +525,7 @@ public class InventoryService {
             maxAttempts = 3,
             backoff = @Backoff(delay = 100))
     @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "confirm"}, histogram = true)
     public void confirmReservation(String reservationId){
         logger.info("Confirming reservation: {}", reservationId);
 
@@ -171,63 +537,231 @@ public class InventoryService {
         }
         
         if (!reservation.isActive()){
-            throw new InventoryServiceException("Reservation is not active: " + reservationId);
+            throw new ReservationNotActiveException(reservationId);
         }
 
-        Inventory inventory = inventoryRepository
-                .findByProductIdAndStoreIdWithLock(reservation.getProductId(), reservation.getStoreId())
-                .orElseThrow(() -> new InventoryServiceException("Inventory not found: "));
+        if (reservation.getBucketIndex() != null) {
+            bucketService.confirmSale(reservation);
+        } else {
+            Inventory inventory = inventoryRepository
+                    .findByProductIdAndStoreIdWithLock(reservation.getProductId(), reservation.getStoreId())
+                    .orElseThrow(() -> new InventoryServiceException("Inventory not found: "));
 
-        inventory.confirmSale(reservation.getQuantity());
+            inventory.confirmSale(reservation.getQuantity());
+            inventoryRepository.save(inventory);
+        }
         reservation.confirm();
 
-        inventoryRepository.save(inventory);
         reservationRepository.save(reservation);
+        journal.record(StockEvent.confirm(reservation));
 
         invalidateAvailabilityCache(reservation.getProductId());
 
         logger.info("Reservation conformed successfully: {}", reservationId);
     }
 
-    public StockAdjustmentResponse adjustStock(StockAdjustmentRequest request){
-        logger.info("Processing stock adjustment batch {}", request.batchId());
+    /**
+     * {@link #releaseReservation} with conditional UPDATEs: the reservation only moves out of
+     * {@code ACTIVE} once, and the stock goes back in the same transaction.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "release_conditional"}, histogram = true)
+    public void releaseConditionally(String reservationId) {
+        logger.info("Releasing reservation conditionally: {}", reservationId);
 
-        List<StockAdjustmentResponse.AdjustmentResultDto> results = request.adjustments().stream()
-                .map(this::processStockAdjustment)
-                .collect(Collectors.toList());
+        Reservation reservation = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException(reservationId));
 
-        return new StockAdjustmentResponse(request.batchId(), results, LocalDateTime.now());
+        if (!reservation.isActive()){
+            throw new ReservationNotActiveException(reservationId);
+        }
+        if (reservation.getBucketIndex() != null) {
+            // the bucket's row lock guards its counters; the conditional status change settles once
+            bucketService.releaseReservation(reservation);
+            settleConditionally(reservation, Reservation.ReservationStatus.CANCELLED);
+        } else {
+            settleConditionally(reservation, Reservation.ReservationStatus.CANCELLED);
+            if (!jdbcRepository.releaseStock(reservation.getProductId(), reservation.getStoreId(), reservation.getQuantity())) {
+                throw new InventoryServiceException("Inventory not found");
+            }
+        }
+        journal.record(StockEvent.release(reservation));
+
+        invalidateAvailabilityCache(reservation.getProductId());
+
+        logger.info("Reservation released successfully");
     }
 
-    //concon@niusushi.cl
+    /**
+     * {@link #confirmReservation} with conditional UPDATEs, like {@link #releaseConditionally}.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "confirm_conditional"}, histogram = true)
+    public void confirmConditionally(String reservationId) {
+        logger.info("Confirming reservation conditionally: {}", reservationId);
 
-    private StockAdjustmentResponse.AdjustmentResultDto processStockAdjustment(StockAdjustmentRequest.AdjustmentDto adjustment){
-        try {
-            Inventory inventory = inventoryRepository.findByProductIdAndStoreIdWithLock(adjustment.productId(), adjustment.storeId())
-                    .orElseThrow(() -> new InventoryServiceException("Inventory not found"));
+        Reservation reservation = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException(reservationId));
 
-            Integer previousStock = inventory.getTotal();
-            inventory.adjustStock(adjustment.delta());
-            inventoryRepository.save(inventory);
+        if (reservation.isExpired()) {
+            throw new ReservationExpiredException(reservationId);
+        }
+        if (!reservation.isActive()){
+            throw new ReservationNotActiveException(reservationId);
+        }
+        if (reservation.getBucketIndex() != null) {
+            bucketService.confirmSale(reservation);
+            settleConditionally(reservation, Reservation.ReservationStatus.CONFIRMED);
+        } else {
+            settleConditionally(reservation, Reservation.ReservationStatus.CONFIRMED);
+            if (!jdbcRepository.confirmStock(reservation.getProductId(), reservation.getStoreId(), reservation.getQuantity())) {
+                throw new InventoryServiceException("Inventory not found: ");
+            }
+        }
+        journal.record(StockEvent.confirm(reservation));
+
+        invalidateAvailabilityCache(reservation.getProductId());
 
-            invalidateAvailabilityCache(adjustment.productId());
+        logger.info("Reservation confirmed successfully: {}", reservationId);
+    }
 
-            String eventId = "EVT-" + UUID.randomUUID().toString();
+    /**
+     * Moves the reservation out of {@code ACTIVE} unless someone else already did since it was
+     * read. The loaded entity is left as read, so it is not flushed again.
+     */
+    private void settleConditionally(Reservation reservation, Reservation.ReservationStatus status) {
+        boolean[] applied = jdbcRepository.settleReservations(
+                List.of(new InventoryJdbcRepository.ReservationStatusChange(reservation.getReservationId(), status)));
+        if (!applied[0]) {
+            throw new ReservationNotActiveException(reservation.getReservationId());
+        }
+    }
 
-            return new StockAdjustmentResponse.AdjustmentResultDto(
-                    adjustment.productId(), adjustment.storeId(), "SUCCESS",
-                    previousStock, inventory.getTotal(), eventId, null
-            );
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "confirm_batch"}, histogram = true)
+    public List<ReservationBatchResponse.ResultDto> confirmReservations(List<String> reservationIds) {
+        logger.info("Confirming {} reservations", reservationIds.size());
+        return settleReservations(reservationIds, Reservation.ReservationStatus.CONFIRMED);
+    }
 
-        } catch (Exception e) {
-            logger.error("Error processing stock adjustment: {}", e.getMessage());
-            return new StockAdjustmentResponse.AdjustmentResultDto(
-                    adjustment.productId(), adjustment.storeId(), "ERROR",
-                    null, null, null, e.getMessage()
-            );
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "release_batch"}, histogram = true)
+    public List<ReservationBatchResponse.ResultDto> releaseReservations(List<String> reservationIds) {
+        logger.info("Releasing {} reservations", reservationIds.size());
+        return settleReservations(reservationIds, Reservation.ReservationStatus.CANCELLED);
+    }
+
+    /**
+     * Confirms or cancels many reservations with one read of the reservations, one lock of their
+     * inventory rows in (productId, storeId) order, and one batched write each for statuses and
+     * counters. Quantities are applied per row in aggregate. Each status change is conditional on
+     * the reservation still being active, so one settled concurrently is reported as
+     * {@code NOT_ACTIVE} rather than applied twice.
+     */
+    private List<ReservationBatchResponse.ResultDto> settleReservations(List<String> reservationIds,
+                                                                       Reservation.ReservationStatus target) {
+        boolean confirm = target == Reservation.ReservationStatus.CONFIRMED;
+        Map<String, Reservation> found = new HashMap<>();
+        reservationRepository.findAllById(new LinkedHashSet<>(reservationIds))
+                .forEach(reservation -> found.put(reservation.getReservationId(), reservation));
+
+        ReservationBatchResponse.ResultDto[] results = new ReservationBatchResponse.ResultDto[reservationIds.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < reservationIds.size(); i++) {
+            String reservationId = reservationIds.get(i);
+            Reservation reservation = found.get(reservationId);
+            if (reservation == null) {
+                results[i] = new ReservationBatchResponse.ResultDto(reservationId, "NOT_FOUND", "Reservation not found: " + reservationId);
+            } else if (confirm && reservation.isExpired()) {
+                results[i] = new ReservationBatchResponse.ResultDto(reservationId, "EXPIRED", "Reservation expired: " + reservationId);
+            } else if (!reservation.isActive()) {
+                results[i] = notActive(reservationId);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        SortedSet<InventoryJdbcRepository.InventoryKey> keys = new TreeSet<>();
+        List<Reservation> bucketed = new ArrayList<>();
+        for (Integer index : candidates) {
+            Reservation reservation = found.get(reservationIds.get(index));
+            if (reservation.getBucketIndex() != null) {
+                bucketed.add(reservation);
+            } else {
+                keys.add(new InventoryJdbcRepository.InventoryKey(reservation.getProductId(), reservation.getStoreId()));
+            }
         }
+        Map<InventoryJdbcRepository.InventoryKey, InventoryJdbcRepository.InventoryRow> locked = new HashMap<>();
+        for (InventoryJdbcRepository.InventoryRow row : jdbcRepository.lockInventoryRows(keys)) {
+            locked.put(new InventoryJdbcRepository.InventoryKey(row.productId(), row.storeId()), row);
+        }
+        Map<String, InventoryBucket> lockedBuckets = bucketService.lockBuckets(bucketed);
+
+        boolean[] applied = jdbcRepository.settleReservations(candidates.stream()
+                .map(index -> new InventoryJdbcRepository.ReservationStatusChange(reservationIds.get(index), target))
+                .toList());
+
+        Map<InventoryJdbcRepository.InventoryKey, Integer> quantities = new HashMap<>();
+        List<Reservation> settledBuckets = new ArrayList<>();
+        List<StockEvent> events = new ArrayList<>();
+        Set<String> productIds = new LinkedHashSet<>();
+        int settled = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            int index = candidates.get(i);
+            Reservation reservation = found.get(reservationIds.get(index));
+            if (!applied[i]) {
+                results[index] = notActive(reservation.getReservationId());
+                continue;
+            }
+            if (reservation.getBucketIndex() != null) {
+                settledBuckets.add(reservation);
+            } else {
+                quantities.merge(new InventoryJdbcRepository.InventoryKey(reservation.getProductId(), reservation.getStoreId()),
+                        reservation.getQuantity(), Integer::sum);
+            }
+            productIds.add(reservation.getProductId());
+            events.add(confirm ? StockEvent.confirm(reservation) : StockEvent.release(reservation));
+            results[index] = new ReservationBatchResponse.ResultDto(reservation.getReservationId(), "SUCCESS", null);
+            settled++;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryJdbcRepository.InventoryCounters> counters = new ArrayList<>();
+        quantities.forEach((key, quantity) -> {
+            InventoryJdbcRepository.InventoryRow row = locked.get(key);
+            if (row == null || row.reserved() < quantity) {
+                throw new InventoryServiceException("Inventory of " + key.productId() + " in store " + key.storeId()
+                        + " does not hold the reserved quantity");
+            }
+            int available = confirm ? row.available() : row.available() + quantity;
+            int reserved = row.reserved() - quantity;
+            counters.add(new InventoryJdbcRepository.InventoryCounters(row.inventoryId(), available, reserved,
+                    available + reserved, now));
+        });
+        jdbcRepository.updateInventoryCounters(counters);
+        bucketService.settle(settledBuckets, lockedBuckets, confirm);
+        journal.recordAll(events);
+        productIds.forEach(this::invalidateAvailabilityCache);
+
+        logger.info("Settled {} of {} reservations as {}", settled, reservationIds.size(), target);
+        return Arrays.asList(results);
+    }
+
+    private static ReservationBatchResponse.ResultDto notActive(String reservationId) {
+        return new ReservationBatchResponse.ResultDto(reservationId, "NOT_ACTIVE", "Reservation is not active: " + reservationId);
+    }
+
+    @Timed(value = "inventory.operation", extraTags = {"operation", "adjust"}, histogram = true)
+    public StockAdjustmentResponse adjustStock(StockAdjustmentRequest request){
+        logger.info("Processing stock adjustment batch {}", request.batchId());
+
+        return adjustmentPipeline.process(request);
     }
+
+    //concon@niusushi.cl
+
     @Transactional
+    @Timed(value = "inventory.operation", extraTags = {"operation", "expiry_sweep"}, histogram = true)
     public void cleanupExpiredReservation() {
         logger.debug("cleaning up expired reservations");
 
@@ -245,28 +779,78 @@ public class InventoryService {
         logger.info("Cleaned up {} expired reservations", expiredReservation.size());
     }
 
+    /**
+     * Expires the given reservations of one (productId, storeId), locking the inventory row once
+     * for all of them. Reservations that are no longer active or not yet expired are skipped.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Timed(value = "inventory.operation", extraTags = {"operation", "expire"}, histogram = true)
+    public int expireReservations(String productId, String storeId, List<String> reservationIds) {
+        List<Reservation> expired = reservationRepository.findAllById(reservationIds).stream()
+                .filter(reservation -> reservation.getStatus() == Reservation.ReservationStatus.ACTIVE && reservation.isExpired())
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        int quantity = expired.stream()
+                .filter(reservation -> reservation.getBucketIndex() == null)
+                .mapToInt(Reservation::getQuantity)
+                .sum();
+        if (quantity > 0) {
+            Inventory inventory = inventoryRepository.findByProductIdAndStoreIdWithLock(productId, storeId)
+                    .orElseThrow(() -> new InventoryServiceException("Inventory not found"));
+            inventory.releaseReservation(quantity);
+            inventoryRepository.save(inventory);
+        }
+        for (Reservation reservation : expired) {
+            if (reservation.getBucketIndex() != null) {
+                bucketService.releaseReservation(reservation);
+            }
+            reservation.expire();
+        }
+        reservationRepository.saveAll(expired);
+        journal.recordAll(expired.stream().map(StockEvent::expire).toList());
+
+        invalidateAvailabilityCache(productId);
+        logger.debug("Expired {} reservations of {}:{}", expired.size(), productId, storeId);
+        return expired.size();
+    }
+
     private void releaseExpiredReservation(Reservation reservation) {
-        Inventory inventory = inventoryRepository
-                .findByProductIdAndStoreIdWithLock(reservation.getProductId(), reservation.getStoreId())
-                .orElseThrow(() -> new InventoryServiceException("Inventory not found"));
+        if (reservation.getBucketIndex() != null) {
+            bucketService.releaseReservation(reservation);
+        } else {
+            Inventory inventory = inventoryRepository
+                    .findByProductIdAndStoreIdWithLock(reservation.getProductId(), reservation.getStoreId())
+                    .orElseThrow(() -> new InventoryServiceException("Inventory not found"));
 
-        inventory.releaseReservation(reservation.getQuantity());
+            inventory.releaseReservation(reservation.getQuantity());
+            inventoryRepository.save(inventory);
+        }
         reservation.expire();
 
-        inventoryRepository.save(inventory);
         reservationRepository.save(reservation);
+        journal.record(StockEvent.expire(reservation));
 
         invalidateAvailabilityCache(reservation.getProductId());
     }
 
-    private InventoryAvailabilityResponse.StoreStockDto mapToStoreStockDto(Inventory inventory){
+    private InventoryAvailabilityResponse.StoreStockDto mapToStoreStockDto(Inventory inventory, int[] bucketSum){
         Store store = storeRepository.findById(inventory.getStoreId())
                 .orElseThrow(() -> new InventoryServiceException("Store not found: " + inventory.getStoreId()));
 
+        return mapToStoreStockDto(inventory, store, bucketSum);
+    }
+
+    InventoryAvailabilityResponse.StoreStockDto mapToStoreStockDto(Inventory inventory, Store store, int[] bucketSum){
         InventoryAvailabilityResponse.LocationDto location = new InventoryAvailabilityResponse.LocationDto(store.getLatitude(), store.getLongitude(), store.getAddress());
 
+        int bucketAvailable = bucketSum != null ? bucketSum[0] : 0;
+        int bucketReserved = bucketSum != null ? bucketSum[1] : 0;
         InventoryAvailabilityResponse.StockInfoDto stock =
-                new InventoryAvailabilityResponse.StockInfoDto(inventory.getAvailable(), inventory.getReserved(), inventory.getTotal());
+                new InventoryAvailabilityResponse.StockInfoDto(inventory.getAvailable() + bucketAvailable,
+                        inventory.getReserved() + bucketReserved, inventory.getTotal() + bucketAvailable + bucketReserved);
 
 
         return new InventoryAvailabilityResponse.StoreStockDto(store.getStoreId(), store.getName(), location, stock,
@@ -274,15 +858,19 @@ public class InventoryService {
     }
 
     private void invalidateAvailabilityCache(String productId) {
-        availabilityCache.entrySet().removeIf(entry -> entry.getKey().startsWith(productId + ":"));
-        logger.debug("Invalidated cache for product: {}", productId);
+        availabilityCache.invalidate(productId);
     }
 
     public InventoryAvailabilityResponse getAvailabilityFallback(String productId, String storeId, Exception ex) {
         logger.warn("Circuit breaker activated for availability query. Using fallback.", ex);
 
-        String cacheKey = productId + ":" + (storeId != null ? storeId : "all");
-        InventoryAvailabilityResponse cached = availabilityCache.get(cacheKey);
+        return getVersionedAvailabilityFallback(productId, storeId, ex).response();
+    }
+
+    public AvailabilitySnapshot getVersionedAvailabilityFallback(String productId, String storeId, Exception ex) {
+        logger.warn("Circuit breaker activated for availability query. Using fallback.", ex);
+
+        AvailabilitySnapshot cached = availabilityCache.getIfPresent(productId, storeId);
 
         if (cached != null) {
             return cached;
@@ -292,6 +880,6 @@ public class InventoryService {
         InventoryAvailabilityResponse.MetadataDto metadata =
                 new InventoryAvailabilityResponse.MetadataDto(requestId, LocalDateTime.now(), true);
 
-        return new InventoryAvailabilityResponse(productId, List.of(), metadata);
+        return new AvailabilitySnapshot(new InventoryAvailabilityResponse(productId, List.of(), metadata), null);
     }
 }
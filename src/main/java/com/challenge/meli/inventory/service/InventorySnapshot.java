@@ -0,0 +1,601 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.dto.StockEventPage;
+import com.challenge.meli.inventory.repository.InventoryJdbcRepository;
+import com.challenge.meli.inventory.repository.SnapshotRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshots of the inventory state for warm restarts. A snapshot holds every product,
+ * store and inventory row plus the active reservations as of a stock event journal offset. On
+ * startup the newest usable snapshot is memory-mapped, the journal events after its offset are
+ * applied to it in memory, and the result is inserted in JDBC batches.
+ * <p>
+ * The offset is taken with {@link StockEventJournal#cut}, so every committed change is either in
+ * the image or after the offset, never both. Rows are stored with their bucket stock folded in and
+ * come back unsplit. Only the newest {@code inventory.snapshot.retained} snapshots are kept, and
+ * journal segments older than all of them are deleted.
+ * <p>
+ * Off by default; enabling it requires {@code inventory.snapshot.directory}, and a snapshot is only
+ * restored into an empty database.
+ */
+@Service
+public class InventorySnapshot implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySnapshot.class);
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x494E5653;
+    private static final int FORMAT = 1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int BATCH_SIZE = 5000;
+    private static final int REPLAY_PAGE = 10000;
+
+    private final SnapshotRepository snapshotRepository;
+    private final InventoryJdbcRepository inventoryJdbcRepository;
+    private final StockEventJournal journal;
+    private final StoreLocator storeLocator;
+
+    @Value("${inventory.snapshot.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${inventory.snapshot.directory:}")
+    private String directory;
+
+    @Value("${inventory.snapshot.retained:2}")
+    private Integer retained;
+
+    private volatile boolean ready;
+    private volatile long snapshotOffset = -1;
+    private Timer writes;
+
+    public InventorySnapshot(SnapshotRepository snapshotRepository, InventoryJdbcRepository inventoryJdbcRepository,
+                             StockEventJournal journal, StoreLocator storeLocator) {
+        this.snapshotRepository = snapshotRepository;
+        this.inventoryJdbcRepository = inventoryJdbcRepository;
+        this.journal = journal;
+        this.storeLocator = storeLocator;
+    }
+
+    /**
+     * Snapshots need the journal: without it the changes after one could not be replayed.
+     */
+    public boolean isEnabled() {
+        return enabled && journal.isEnabled();
+    }
+
+    @PostConstruct
+    public void validate() {
+        if (isEnabled() && directory.isBlank()) {
+            throw new IllegalStateException("inventory.snapshot.directory must be set when snapshots are enabled");
+        }
+    }
+
+    /**
+     * Loads the newest snapshot the journal can bring up to date into the empty database, inside
+     * the caller's transaction. Returns false when there is none, or when the database already
+     * has data.
+     */
+    public boolean restore() {
+        if (!isEnabled() || !Files.isDirectory(Path.of(directory))) {
+            return false;
+        }
+        if (!snapshotRepository.isEmpty()) {
+            logger.warn("Database already has inventory data, not restoring a snapshot over it");
+            return false;
+        }
+        long started = System.nanoTime();
+        for (Path file : snapshots()) {
+            long offset = offsetOf(file);
+            if (offset < journal.getStartOffset() || offset > journal.getEndOffset()) {
+                logger.warn("Snapshot {} is outside the stock event journal ({} to {}), skipping",
+                        file.getFileName(), journal.getStartOffset(), journal.getEndOffset());
+                continue;
+            }
+            Image image;
+            int replayed;
+            try {
+                image = Image.load(file);
+                replayed = replay(image);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Cannot restore snapshot {}: {}", file.getFileName(), e.getMessage());
+                continue;
+            }
+
+            insert(image);
+            snapshotOffset = offset;
+            if (image.unknownRows > 0) {
+                logger.warn("Skipped {} journal events for inventory rows missing from snapshot {}",
+                        image.unknownRows, file.getFileName());
+            }
+            logger.info("Restored snapshot {} ({} rows, {} active reservations) and replayed {} journal events in {} ms",
+                    file.getFileName(), image.rowCount, image.reservations.size(), replayed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes a snapshot of the committed state, unless one already exists at the current journal
+     * offset, and returns its offset.
+     */
+    public synchronized long write() throws IOException, SQLException {
+        Path root = Files.createDirectories(Path.of(directory));
+        long started = System.nanoTime();
+        try (SnapshotRepository.Reader reader = snapshotRepository.openReader()) {
+            long offset = journal.cut(end -> {
+                reader.pin();
+                return end;
+            });
+            Path target = root.resolve(fileName(offset));
+            if (Files.exists(target)) {
+                return offset;
+            }
+
+            Path temp = root.resolve(fileName(offset) + ".tmp");
+            int[] counts;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+                counts = writeImage(out, reader, offset);
+                out.flush();
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            snapshotOffset = offset;
+            prune();
+
+            long elapsed = System.nanoTime() - started;
+            if (writes != null) {
+                writes.record(elapsed, TimeUnit.NANOSECONDS);
+            }
+            logger.info("Wrote snapshot at journal offset {} ({} rows, {} active reservations, {} KB) in {} ms",
+                    offset, counts[0], counts[1], Files.size(target) / 1024, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return offset;
+        }
+    }
+
+    /**
+     * Runs {@link #write} once startup data is in place, logging failures instead of throwing.
+     */
+    public void checkpoint() {
+        if (!ready) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException | SQLException | RuntimeException e) {
+            logger.error("Failed to write inventory snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes a first snapshot right after startup when none exists, so that changes from then on
+     * survive a restart even before the first scheduled one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!isEnabled()) {
+            return;
+        }
+        ready = true;
+        if (snapshotOffset < 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Leaves a snapshot at the current offset, so the next start has (almost) nothing to replay.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void onClose() {
+        checkpoint();
+        ready = false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        writes = Timer.builder("inventory.snapshot.write")
+                .description("Time to write an inventory snapshot")
+                .register(registry);
+        Gauge.builder("inventory.snapshot.replay.bytes", this,
+                        snapshot -> snapshot.snapshotOffset < 0 ? Double.NaN : journal.getEndOffset() - snapshot.snapshotOffset)
+                .description("Journal bytes a restart would replay on top of the latest snapshot")
+                .register(registry);
+    }
+
+    /**
+     * Returns the number of inventory rows and active reservations written.
+     */
+    private static int[] writeImage(DataOutputStream out, SnapshotRepository.Reader reader, long offset) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeLong(offset);
+        out.writeLong(System.currentTimeMillis());
+
+        List<SnapshotRepository.ProductRow> products = reader.products();
+        Map<String, Integer> productIndex = new HashMap<>();
+        out.writeInt(products.size());
+        for (SnapshotRepository.ProductRow product : products) {
+            productIndex.put(product.productId(), productIndex.size());
+            writeString(out, product.productId());
+            writeString(out, product.name());
+            writeString(out, product.description());
+            out.writeDouble(product.price());
+            out.writeLong(epochMillis(product.createdAt()));
+            out.writeLong(epochMillis(product.updatedAt()));
+        }
+
+        List<SnapshotRepository.StoreRow> stores = reader.stores();
+        Map<String, Integer> storeIndex = new HashMap<>();
+        out.writeInt(stores.size());
+        for (SnapshotRepository.StoreRow store : stores) {
+            storeIndex.put(store.storeId(), storeIndex.size());
+            writeString(out, store.storeId());
+            writeString(out, store.name());
+            writeString(out, store.address());
+            out.writeDouble(store.latitude());
+            out.writeDouble(store.longitude());
+            out.writeLong(epochMillis(store.createdAt()));
+        }
+
+        int rowCount = reader.countInventory();
+        int[] written = new int[2];
+        out.writeInt(rowCount);
+        reader.forEachInventoryRow(row -> {
+            try {
+                out.writeInt(indexOf(productIndex, row.productId(), "product"));
+                out.writeInt(indexOf(storeIndex, row.storeId(), "store"));
+                out.writeInt(row.available());
+                out.writeInt(row.reserved());
+                out.writeInt(row.total());
+                out.writeLong(epochMillis(row.lastUpdated()));
+                written[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        int reservationCount = reader.countActiveReservations();
+        out.writeInt(reservationCount);
+        reader.forEachActiveReservation(reservation -> {
+            try {
+                writeString(out, reservation.reservationId());
+                out.writeInt(indexOf(productIndex, reservation.productId(), "product"));
+                out.writeInt(indexOf(storeIndex, reservation.storeId(), "store"));
+                writeString(out, reservation.customerId());
+                out.writeInt(reservation.quantity());
+                out.writeLong(epochMillis(reservation.createdAt()));
+                out.writeLong(epochMillis(reservation.expiresAt()));
+                writeString(out, reservation.confirmationCode());
+                written[1]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        if (written[0] != rowCount || written[1] != reservationCount) {
+            throw new IllegalStateException("Snapshot counts changed while reading");
+        }
+        return written;
+    }
+
+    private int replay(Image image) {
+        long offset = image.offset;
+        int replayed = 0;
+        while (offset < journal.getEndOffset()) {
+            StockEventPage page = journal.read(offset, REPLAY_PAGE, 0);
+            if (page.events().isEmpty()) {
+                break;
+            }
+            for (StockEventPage.EntryDto entry : page.events()) {
+                image.apply(entry.event());
+                replayed++;
+            }
+            offset = page.nextOffset();
+        }
+        return replayed;
+    }
+
+    private void insert(Image image) {
+        snapshotRepository.insertProducts(image.products);
+        snapshotRepository.insertStores(image.stores);
+        storeLocator.markStale();
+
+        List<SnapshotRepository.InventoryRow> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < image.rowCount; i++) {
+            rows.add(new SnapshotRepository.InventoryRow(image.products.get(image.rowProduct[i]).productId(),
+                    image.stores.get(image.rowStore[i]).storeId(), image.available[i], image.reserved[i], image.total[i],
+                    dateTime(image.lastUpdated[i])));
+            if (rows.size() == BATCH_SIZE) {
+                snapshotRepository.insertInventory(rows);
+                rows.clear();
+            }
+        }
+        snapshotRepository.insertInventory(rows);
+
+        List<Reservation> reservations = new ArrayList<>(image.reservations.values());
+        for (int from = 0; from < reservations.size(); from += BATCH_SIZE) {
+            inventoryJdbcRepository.insertReservations(reservations.subList(from, Math.min(reservations.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> files = snapshots();
+        for (Path stale : files.subList(Math.min(retained, files.size()), files.size())) {
+            Files.deleteIfExists(stale);
+        }
+        if (!files.isEmpty()) {
+            journal.truncateBefore(offsetOf(files.get(Math.min(retained, files.size()) - 1)));
+        }
+    }
+
+    /**
+     * Snapshot files, newest first.
+     */
+    private List<Path> snapshots() {
+        try (Stream<Path> listing = Files.list(Path.of(directory))) {
+            return listing.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(InventorySnapshot::offsetOf).reversed())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshots in " + directory, e);
+        }
+    }
+
+    private static String fileName(long offset) {
+        return String.format("%s%020d%s", PREFIX, offset, SUFFIX);
+    }
+
+    private static long offsetOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static int indexOf(Map<String, Integer> index, String id, String kind) {
+        Integer position = index.get(id);
+        if (position == null) {
+            throw new IllegalStateException("Inventory references unknown " + kind + " " + id);
+        }
+        return position;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : NO_TIME;
+    }
+
+    private static LocalDateTime dateTime(long epochMillis) {
+        return epochMillis != NO_TIME
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                : null;
+    }
+
+    /**
+     * A snapshot loaded into memory. Rows are kept in parallel arrays sorted by
+     * (product index, store index), the order they were written in.
+     */
+    private static final class Image {
+        private long offset;
+        private List<SnapshotRepository.ProductRow> products;
+        private List<SnapshotRepository.StoreRow> stores;
+        private final Map<String, Integer> productIndex = new HashMap<>();
+        private final Map<String, Integer> storeIndex = new HashMap<>();
+        private int rowCount;
+        private long[] keys;
+        private int[] rowProduct;
+        private int[] rowStore;
+        private int[] available;
+        private int[] reserved;
+        private int[] total;
+        private long[] lastUpdated;
+        private final Map<String, Reservation> reservations = new LinkedHashMap<>();
+        private int unknownRows;
+
+        private static Image load(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE || channel.size() < 28) {
+                    throw new IOException("unexpected size " + channel.size());
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int end = buffer.capacity() - 4;
+                CRC32 crc = new CRC32();
+                crc.update(buffer.slice(0, end));
+                if ((int) crc.getValue() != buffer.getInt(end)) {
+                    throw new IOException("checksum mismatch");
+                }
+                if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                    throw new IOException("unknown format");
+                }
+
+                Image image = new Image();
+                image.offset = buffer.getLong();
+                buffer.getLong();
+
+                int productCount = buffer.getInt();
+                image.products = new ArrayList<>(productCount);
+                for (int i = 0; i < productCount; i++) {
+                    SnapshotRepository.ProductRow product = new SnapshotRepository.ProductRow(readString(buffer),
+                            readString(buffer), readString(buffer), buffer.getDouble(),
+                            dateTime(buffer.getLong()), dateTime(buffer.getLong()));
+                    image.productIndex.put(product.productId(), i);
+                    image.products.add(product);
+                }
+
+                int storeCount = buffer.getInt();
+                image.stores = new ArrayList<>(storeCount);
+                for (int i = 0; i < storeCount; i++) {
+                    SnapshotRepository.StoreRow store = new SnapshotRepository.StoreRow(readString(buffer),
+                            readString(buffer), readString(buffer), buffer.getDouble(), buffer.getDouble(),
+                            dateTime(buffer.getLong()));
+                    image.storeIndex.put(store.storeId(), i);
+                    image.stores.add(store);
+                }
+
+                int rows = buffer.getInt();
+                image.rowCount = rows;
+                image.keys = new long[rows];
+                image.rowProduct = new int[rows];
+                image.rowStore = new int[rows];
+                image.available = new int[rows];
+                image.reserved = new int[rows];
+                image.total = new int[rows];
+                image.lastUpdated = new long[rows];
+                for (int i = 0; i < rows; i++) {
+                    image.rowProduct[i] = buffer.getInt();
+                    image.rowStore[i] = buffer.getInt();
+                    image.available[i] = buffer.getInt();
+                    image.reserved[i] = buffer.getInt();
+                    image.total[i] = buffer.getInt();
+                    image.lastUpdated[i] = buffer.getLong();
+                    image.keys[i] = key(image.rowProduct[i], image.rowStore[i]);
+                    if (i > 0 && image.keys[i] <= image.keys[i - 1]) {
+                        throw new IOException("inventory rows out of order");
+                    }
+                }
+
+                int reservationCount = buffer.getInt();
+                for (int i = 0; i < reservationCount; i++) {
+                    Reservation reservation = new Reservation();
+                    reservation.setReservationId(readString(buffer));
+                    reservation.setProductId(image.products.get(buffer.getInt()).productId());
+                    reservation.setStoreId(image.stores.get(buffer.getInt()).storeId());
+                    reservation.setCustomerId(readString(buffer));
+                    reservation.setQuantity(buffer.getInt());
+                    reservation.setCreatedAt(dateTime(buffer.getLong()));
+                    reservation.setExpiresAt(dateTime(buffer.getLong()));
+                    reservation.setConfirmationCode(readString(buffer));
+                    reservation.setStatus(Reservation.ReservationStatus.ACTIVE);
+                    image.reservations.put(reservation.getReservationId(), reservation);
+                }
+                return image;
+            }
+        }
+
+        /**
+         * Applies one journal event, following the transitions of {@link StockEvent}.
+         */
+        private void apply(StockEvent event) {
+            int row = find(event.productId(), event.storeId());
+            if (row < 0) {
+                unknownRows++;
+                return;
+            }
+            int quantity = event.quantity();
+            switch (event.type()) {
+                case RESERVE -> {
+                    if (reservations.containsKey(event.reference())) {
+                        return;
+                    }
+                    Reservation reservation = new Reservation(event.reference(), event.productId(), event.storeId(),
+                            null, quantity, event.expiresAt());
+                    reservation.setCreatedAt(event.timestamp());
+                    reservations.put(event.reference(), reservation);
+                    available[row] -= quantity;
+                    reserved[row] += quantity;
+                }
+                case RELEASE, EXPIRE -> {
+                    if (reservations.remove(event.reference()) == null) {
+                        return;
+                    }
+                    available[row] += quantity;
+                    reserved[row] -= quantity;
+                }
+                case CONFIRM -> {
+                    if (reservations.remove(event.reference()) == null) {
+                        return;
+                    }
+                    reserved[row] -= quantity;
+                    total[row] -= quantity;
+                }
+                case ADJUST -> {
+                    available[row] += quantity;
+                    total[row] += quantity;
+                }
+            }
+            lastUpdated[row] = epochMillis(event.timestamp());
+        }
+
+        private int find(String productId, String storeId) {
+            Integer product = productIndex.get(productId);
+            Integer store = storeIndex.get(storeId);
+            if (product == null || store == null) {
+                return -1;
+            }
+            int row = Arrays.binarySearch(keys, key(product, store));
+            return row >= 0 ? row : -1;
+        }
+
+        private static long key(int product, int store) {
+            return ((long) product << 32) | store;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.dto.ReservationResponse;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import com.challenge.meli.inventory.exception.SkuOverloadedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-(productId, storeId) load shedding in front of every reservation path. Each SKU admits at
+ * most {@code inventory.shedding.max-in-flight} reservations at a time and parks at most
+ * {@code inventory.shedding.max-queue} more, in arrival order, for up to
+ * {@code inventory.shedding.queue-timeout-ms}; anything beyond that is rejected at once with
+ * {@link SkuOverloadedException}, so a viral SKU cannot tie up threads and connections that other
+ * SKUs need.
+ * <p>
+ * A SKU known to lack stock is also rejected before it queues: either the availability projection
+ * (with no changes pending) or the availability cache shows less than the requested quantity, or a
+ * reservation already failed with nothing available and no write to the product has evicted its
+ * cache entries since.
+ * <p>
+ * A SKU's gate is pinned while any request holds or waits for one of its permits, and only
+ * expires after ten minutes with none, so the in-flight bound never splits over two gates.
+ */
+@Service
+public class ReservationAdmission implements MeterBinder {
+
+    private static final long NOT_SOLD_OUT = -1;
+    private static final Duration IDLE_EXPIRY = Duration.ofMinutes(10);
+
+    private final AvailabilityCache availabilityCache;
+    private final AvailabilityProjection projection;
+
+    @Value("${inventory.shedding.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${inventory.shedding.max-in-flight:4}")
+    private Integer maxInFlight;
+
+    @Value("${inventory.shedding.max-queue:32}")
+    private Integer maxQueue;
+
+    @Value("${inventory.shedding.queue-timeout-ms:1000}")
+    private Long queueTimeoutMs;
+
+    @Value("${inventory.shedding.retry-after-seconds:1}")
+    private Long retryAfterSeconds;
+
+    @Value("${inventory.shedding.sold-out-retry-after-seconds:30}")
+    private Long soldOutRetryAfterSeconds;
+
+    private final Cache<String, Gate> gates = Caffeine.newBuilder()
+            .expireAfter(new Expiry<String, Gate>() {
+                @Override
+                public long expireAfterCreate(String key, Gate gate, long currentTime) {
+                    return gate.expiry();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Gate gate, long currentTime, long currentDuration) {
+                    return gate.expiry();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Gate gate, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    private Counter overloaded;
+    private Counter soldOut;
+
+    public ReservationAdmission(AvailabilityCache availabilityCache, AvailabilityProjection projection) {
+        this.availabilityCache = availabilityCache;
+        this.projection = projection;
+    }
+
+    public ReservationResponse reserve(ReservationRequest request, Supplier<ReservationResponse> reservation) {
+        if (!enabled) {
+            return reservation.get();
+        }
+
+        String productId = request.productId();
+        String storeId = request.storeId();
+        String key = productId + ":" + storeId;
+        long generation = availabilityCache.currentGeneration(productId);
+        Gate gate = pin(key);
+        try {
+            if (gate.soldOutGeneration == generation) {
+                throw rejectSoldOut(request, 0);
+            }
+            Integer available = projection.peekAvailable(productId, storeId);
+            if (available == null) {
+                available = availabilityCache.peekAvailable(productId, storeId);
+            }
+            if (available != null && available < request.quantity()) {
+                throw rejectSoldOut(request, available);
+            }
+
+            acquire(gate, request);
+            try {
+                return reservation.get();
+            } catch (InsufficientStockException e) {
+                if (e.getAvailableQuantity() != null && e.getAvailableQuantity() == 0) {
+                    gate.soldOutGeneration = generation;
+                }
+                throw e;
+            } finally {
+                gate.permits.release();
+            }
+        } finally {
+            unpin(key);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        overloaded = Counter.builder("inventory.shedding.rejected").tag("reason", "overloaded")
+                .description("Reservations rejected before reaching the database")
+                .register(registry);
+        soldOut = Counter.builder("inventory.shedding.rejected").tag("reason", "sold_out")
+                .description("Reservations rejected before reaching the database")
+                .register(registry);
+    }
+
+    private Gate pin(String key) {
+        return gates.asMap().compute(key, (ignored, gate) -> {
+            Gate pinned = gate != null ? gate : new Gate(maxInFlight);
+            pinned.users++;
+            return pinned;
+        });
+    }
+
+    private void unpin(String key) {
+        gates.asMap().computeIfPresent(key, (ignored, gate) -> {
+            gate.users--;
+            return gate;
+        });
+    }
+
+    private void acquire(Gate gate, ReservationRequest request) {
+        if (gate.waiting.incrementAndGet() > maxQueue) {
+            gate.waiting.decrementAndGet();
+            throw rejectOverloaded(request);
+        }
+        boolean acquired;
+        try {
+            acquired = gate.permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InventoryServiceException("Interrupted waiting to reserve", e);
+        } finally {
+            gate.waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            throw rejectOverloaded(request);
+        }
+    }
+
+    private SkuOverloadedException rejectOverloaded(ReservationRequest request) {
+        if (overloaded != null) {
+            overloaded.increment();
+        }
+        return new SkuOverloadedException(request.productId(), request.storeId(), retryAfterSeconds);
+    }
+
+    private InsufficientStockException rejectSoldOut(ReservationRequest request, int available) {
+        if (soldOut != null) {
+            soldOut.increment();
+        }
+        return new InsufficientStockException(request.productId(), request.storeId(), request.quantity(), available,
+                soldOutRetryAfterSeconds);
+    }
+
+    private static final class Gate {
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile long soldOutGeneration = NOT_SOLD_OUT;
+        // requests using the gate; only changed inside a compute on its key
+        private int users;
+
+        private Gate(int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight, true);
+        }
+
+        private long expiry() {
+            return users > 0 ? Long.MAX_VALUE : IDLE_EXPIRY.toNanos();
+        }
+    }
+}
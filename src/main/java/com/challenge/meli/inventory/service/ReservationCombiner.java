@@ -0,0 +1,284 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.dto.CombinerStatsResponse;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.dto.ReservationResponse;
+import com.challenge.meli.inventory.exception.AdmissionRejectedException;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group-commit front end for {@link InventoryService#reserveProduct}. Requests for the same
+ * (productId, storeId) that arrive within {@code inventory.combiner.window-ms} (or until
+ * {@code inventory.combiner.max-batch-size} is reached) are reserved together under one row
+ * lock and one batched insert. Batches of the same row run one after another, so callers are
+ * served in arrival order; requests that arrive while a batch is in flight form the next one.
+ * <p>
+ * A request still waiting for its batch after {@code inventory.combiner.timeout-ms} is withdrawn
+ * and rejected as not admitted (503); once its batch has been dispatched the caller waits for
+ * the outcome instead, so a reservation is never committed behind an error. A row's queue is
+ * dropped as soon as it has nothing waiting or in flight.
+ */
+@Service
+public class ReservationCombiner implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationCombiner.class);
+
+    private final InventoryService inventoryService;
+
+    @Value("${inventory.combiner.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${inventory.combiner.window-ms:2}")
+    private Long windowMs;
+
+    @Value("${inventory.combiner.max-batch-size:64}")
+    private Integer maxBatchSize;
+
+    @Value("${inventory.combiner.workers:8}")
+    private Integer workers;
+
+    @Value("${inventory.combiner.timeout-ms:10000}")
+    private Long timeoutMs;
+
+    private final Map<String, RowQueue> queues = new ConcurrentHashMap<>();
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private AtomicLongArray fillHistogram;
+
+    private ScheduledExecutorService timer;
+    private ExecutorService executor;
+
+    public ReservationCombiner(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        fillHistogram = new AtomicLongArray(maxBatchSize);
+        if (!enabled) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "reservation-combiner-timer"));
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "reservation-combiner"));
+        logger.info("Reservation combiner started (window {} ms, max batch {})", windowMs, maxBatchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        timer.shutdown();
+        executor.shutdown();
+    }
+
+    public ReservationResponse reserve(ReservationRequest request) {
+        PendingReservation pending = new PendingReservation(request);
+        String key = request.productId() + ":" + request.storeId();
+        RowQueue queue;
+        do {
+            queue = queues.computeIfAbsent(key, ignored -> new RowQueue(key, request.productId(), request.storeId()));
+        } while (!queue.add(pending));
+
+        try {
+            try {
+                return pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (queue.withdraw(pending)) {
+                    throw new AdmissionRejectedException("Timed out waiting for combined reservation", 1);
+                }
+                // already part of a batch, which may still commit it
+                return pending.result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new InventoryServiceException("Combined reservation failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InventoryServiceException("Interrupted waiting for combined reservation", e);
+        }
+    }
+
+    /**
+     * Requests of a row waiting for their batch to be dispatched.
+     */
+    int getWaitingCount(String productId, String storeId) {
+        RowQueue queue = queues.get(productId + ":" + storeId);
+        return queue != null ? queue.getWaitingCount() : 0;
+    }
+
+    public CombinerStatsResponse getStats() {
+        long batchCount = batches.sum();
+        long requestCount = requests.sum();
+        Map<Integer, Long> histogram = new TreeMap<>();
+        for (int i = 0; i < fillHistogram.length(); i++) {
+            long count = fillHistogram.get(i);
+            if (count > 0) {
+                histogram.put(i + 1, count);
+            }
+        }
+        return new CombinerStatsResponse(enabled, windowMs, maxBatchSize, batchCount, requestCount,
+                batchCount == 0 ? 0.0 : (double) requestCount / batchCount,
+                batchCount == 0 ? 0.0 : (double) requestCount / (batchCount * maxBatchSize),
+                largestBatch.get(), histogram);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("inventory.combiner.batches", batches, LongAdder::sum).register(registry);
+        FunctionCounter.builder("inventory.combiner.requests", requests, LongAdder::sum).register(registry);
+    }
+
+    private void record(int size) {
+        batches.increment();
+        requests.add(size);
+        largestBatch.accumulateAndGet(size, Math::max);
+        fillHistogram.incrementAndGet(size - 1);
+    }
+
+    private final class RowQueue {
+        private final String key;
+        private final String productId;
+        private final String storeId;
+        private final Deque<PendingReservation> waiting = new ArrayDeque<>();
+        private boolean inFlight;
+        private boolean timerArmed;
+        private boolean retired;
+
+        private RowQueue(String key, String productId, String storeId) {
+            this.key = key;
+            this.productId = productId;
+            this.storeId = storeId;
+        }
+
+        /**
+         * Queues the request; false if this queue has been dropped and a new one must be used.
+         */
+        private synchronized boolean add(PendingReservation pending) {
+            if (retired) {
+                return false;
+            }
+            waiting.add(pending);
+            if (inFlight) {
+                return true;
+            }
+            if (waiting.size() >= maxBatchSize) {
+                dispatch();
+            } else if (!timerArmed) {
+                timerArmed = true;
+                timer.schedule(this::onWindowElapsed, windowMs, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        /**
+         * Takes back a request not yet dispatched; false if it is already part of a batch.
+         */
+        private synchronized boolean withdraw(PendingReservation pending) {
+            if (!waiting.remove(pending)) {
+                return false;
+            }
+            retireIfIdle();
+            return true;
+        }
+
+        private synchronized int getWaitingCount() {
+            return waiting.size();
+        }
+
+        private synchronized void onWindowElapsed() {
+            timerArmed = false;
+            if (!inFlight && !waiting.isEmpty()) {
+                dispatch();
+            }
+            retireIfIdle();
+        }
+
+        private synchronized void onBatchDone() {
+            inFlight = false;
+            if (!waiting.isEmpty()) {
+                dispatch();
+            }
+            retireIfIdle();
+        }
+
+        private void retireIfIdle() {
+            if (!inFlight && !timerArmed && waiting.isEmpty()) {
+                retired = true;
+                queues.remove(key, this);
+            }
+        }
+
+        private void dispatch() {
+            List<PendingReservation> batch = new ArrayList<>(Math.min(waiting.size(), maxBatchSize));
+            while (!waiting.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(waiting.poll());
+            }
+            inFlight = true;
+            record(batch.size());
+            executor.execute(() -> {
+                try {
+                    execute(batch);
+                } finally {
+                    onBatchDone();
+                }
+            });
+        }
+
+        private void execute(List<PendingReservation> batch) {
+            try {
+                List<InventoryService.BatchReservation> results = inventoryService.reserveBatch(productId, storeId,
+                        batch.stream().map(pending -> pending.request).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    InventoryService.BatchReservation result = results.get(i);
+                    if (result.error() != null) {
+                        batch.get(i).result.completeExceptionally(result.error());
+                    } else {
+                        batch.get(i).result.complete(result.response());
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Combined reservation batch of {} for {}:{} failed: {}", batch.size(), productId, storeId, e.getMessage());
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        }
+    }
+
+    private static final class PendingReservation {
+        private final ReservationRequest request;
+        private final CompletableFuture<ReservationResponse> result = new CompletableFuture<>();
+
+        private PendingReservation(ReservationRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,612 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.dto.ReservationResponse;
+import com.challenge.meli.inventory.dto.StockAdjustmentRequest;
+import com.challenge.meli.inventory.dto.StockAdjustmentResponse;
+import com.challenge.meli.inventory.exception.EngineUnavailableException;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import com.challenge.meli.inventory.exception.ReservationExpiredException;
+import com.challenge.meli.inventory.exception.ReservationNotActiveException;
+import com.challenge.meli.inventory.exception.ReservationNotFoundException;
+import com.challenge.meli.inventory.repository.InventoryJdbcRepository;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Optional single-writer reservation engine ({@code inventory.engine.mode=in-memory}).
+ * <p>
+ * Stock counters for each (productId, storeId) live in memory and are owned by exactly one
+ * partition thread, so reserve/release/confirm/adjust are plain state transitions with no row
+ * locks. Every transition is queued for write-behind and group-committed to the
+ * {@code inventory}/{@code reservations} tables in JDBC batches; callers only get their answer
+ * once the batch holding their change has committed.
+ * <p>
+ * A queued write is never withdrawn. If its batch has not committed within
+ * {@code inventory.engine.write-timeout-ms}, a reservation is still returned, with status
+ * {@code PENDING} instead of {@code CONFIRMED}, so the client knows its id and can release it;
+ * release and confirm fail with a message saying the change may still be applied. That, a full
+ * partition queue and a failed flush are all {@link EngineUnavailableException}s (503 with
+ * {@code Retry-After}): the request can be retried, and a retried release or confirm whose first
+ * attempt did get applied finds the reservation no longer active. A {@code PENDING} reservation
+ * whose batch then fails is recorded as {@code CANCELLED}.
+ * <p>
+ * Batches add the counter deltas they applied to the rows rather than overwriting them, so a
+ * change made to a row outside the engine is kept.
+ */
+@Service
+public class ReservationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationEngine.class);
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private static final int OPEN = 0;
+    private static final int ABANDONED = 1;
+    private static final int FAILED = 2;
+
+    private final InventoryRepository inventoryRepository;
+    private final ReservationRepository reservationRepository;
+    private final InventoryJdbcRepository jdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AvailabilityCache availabilityCache;
+    private final ReservationExpiryWheel expiryWheel;
+    private final StockEventJournal journal;
+
+    @Value("${inventory.engine.mode:database}")
+    private String mode;
+
+    @Value("${inventory.engine.partitions:0}")
+    private Integer partitionCount;
+
+    @Value("${inventory.engine.queue-capacity:65536}")
+    private Integer queueCapacity;
+
+    @Value("${inventory.engine.flush-batch-size:1000}")
+    private Integer flushBatchSize;
+
+    @Value("${inventory.engine.write-timeout-ms:5000}")
+    private Long writeTimeoutMs;
+
+    @Value("${inventory.reservation.default-ttl:1800}")
+    private Integer defaultReservationTtl;
+
+    private final Map<String, StockSlot> slots = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingWrite> writeQueue = new LinkedBlockingQueue<>();
+
+    private ExecutorService[] partitions;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public ReservationEngine(InventoryRepository inventoryRepository, ReservationRepository reservationRepository,
+                             InventoryJdbcRepository jdbcRepository, PlatformTransactionManager transactionManager,
+                             AvailabilityCache availabilityCache, ReservationExpiryWheel expiryWheel,
+                             StockEventJournal journal) {
+        this.inventoryRepository = inventoryRepository;
+        this.reservationRepository = reservationRepository;
+        this.jdbcRepository = jdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.availabilityCache = availabilityCache;
+        this.expiryWheel = expiryWheel;
+        this.journal = journal;
+    }
+
+    public boolean isEnabled() {
+        return "in-memory".equalsIgnoreCase(mode);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        partitions = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            String name = "reservation-engine-" + i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, name));
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "reservation-engine-flusher");
+        flusher.start();
+        logger.info("Reservation engine started with {} partitions", count);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+        for (ExecutorService partition : partitions) {
+            partition.shutdown();
+        }
+        for (ExecutorService partition : partitions) {
+            partition.awaitTermination(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        running = false;
+        flusher.join(writeTimeoutMs);
+        logger.info("Reservation engine stopped");
+    }
+
+    public ReservationResponse reserve(ReservationRequest request) {
+        String key = key(request.productId(), request.storeId());
+
+        PendingWrite write = execute(key, () -> {
+            StockSlot slot = slot(key, request.productId(), request.storeId());
+            Inventory inventory = slot.inventory;
+
+            if (!inventory.canReserve(request.quantity())) {
+                throw new InsufficientStockException(
+                        request.productId(), request.storeId(), request.quantity(), inventory.getAvailable());
+            }
+
+            String reservationId = "RES-" + UUID.randomUUID();
+            LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(
+                    request.reservationTtl() != null ? request.reservationTtl() : defaultReservationTtl);
+            Reservation reservation = new Reservation(reservationId, request.productId(), request.storeId(),
+                    request.customerId(), request.quantity(), expiresAt);
+
+            inventory.reserve(request.quantity());
+            reservations.put(reservationId, reservation);
+            return enqueue(slot, reservation, true, StockEvent.reserve(reservation));
+        });
+        boolean durable = awaitDurable(write);
+        if (!durable && !write.abandon()) {
+            // the batch failed just as the wait gave up: report its failure
+            durable = awaitDurable(write);
+        }
+
+        Reservation reservation = write.reservation;
+        expiryWheel.schedule(reservation);
+        String reservationId = reservation.getReservationId();
+        Map<String, String> actions = Map.of(
+                "confirm", "/api/v1/inventory/confirm/" + reservationId,
+                "release", "/api/v1/inventory/release/" + reservationId,
+                "extend", "/api/v1/inventory/extend/" + reservationId
+        );
+
+        return new ReservationResponse(reservationId, durable ? "CONFIRMED" : "PENDING",
+                reservation.getProductId(), reservation.getStoreId(), reservation.getQuantity(),
+                reservation.getExpiresAt(), reservation.getConfirmationCode(), actions);
+    }
+
+    public void releaseReservation(String reservationId) {
+        Reservation known = findReservation(reservationId);
+        String key = key(known.getProductId(), known.getStoreId());
+
+        awaitApplied(execute(key, () -> {
+            Reservation reservation = reservations.get(reservationId);
+            if (reservation == null || !reservation.isActive()) {
+                throw new ReservationNotActiveException(reservationId);
+            }
+            StockSlot slot = slot(key, reservation.getProductId(), reservation.getStoreId());
+            slot.inventory.releaseReservation(reservation.getQuantity());
+            reservation.cancel();
+            reservations.remove(reservationId);
+            return enqueue(slot, reservation, false, StockEvent.release(reservation));
+        }));
+    }
+
+    public void confirmReservation(String reservationId) {
+        Reservation known = findReservation(reservationId);
+        String key = key(known.getProductId(), known.getStoreId());
+
+        awaitApplied(execute(key, () -> {
+            Reservation reservation = reservations.get(reservationId);
+            if (reservation == null) {
+                throw new ReservationNotActiveException(reservationId);
+            }
+            if (reservation.isExpired()) {
+                throw new ReservationExpiredException(reservationId);
+            }
+            if (!reservation.isActive()) {
+                throw new ReservationNotActiveException(reservationId);
+            }
+            StockSlot slot = slot(key, reservation.getProductId(), reservation.getStoreId());
+            slot.inventory.confirmSale(reservation.getQuantity());
+            reservation.confirm();
+            reservations.remove(reservationId);
+            return enqueue(slot, reservation, false, StockEvent.confirm(reservation));
+        }));
+    }
+
+    public StockAdjustmentResponse adjustStock(StockAdjustmentRequest request) {
+        logger.info("Processing stock adjustment batch {} in reservation engine", request.batchId());
+
+        List<CompletableFuture<StockAdjustmentResponse.AdjustmentResultDto>> pending = new ArrayList<>();
+        for (StockAdjustmentRequest.AdjustmentDto adjustment : request.adjustments()) {
+            String key = key(adjustment.productId(), adjustment.storeId());
+            pending.add(submit(key, () -> {
+                StockSlot slot = slot(key, adjustment.productId(), adjustment.storeId());
+                Integer previousStock = slot.inventory.getTotal();
+                slot.inventory.adjustStock(adjustment.delta());
+                String eventId = "EVT-" + UUID.randomUUID();
+                PendingWrite write = enqueue(slot, null, false,
+                        StockEvent.adjust(adjustment.productId(), adjustment.storeId(), eventId, adjustment.delta()));
+                return write.durable.thenApply(ignored -> new StockAdjustmentResponse.AdjustmentResultDto(
+                        adjustment.productId(), adjustment.storeId(), "SUCCESS",
+                        previousStock, write.total, eventId, null));
+            }).thenCompose(durable -> durable).exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                logger.error("Error processing stock adjustment: {}", cause.getMessage());
+                return new StockAdjustmentResponse.AdjustmentResultDto(
+                        adjustment.productId(), adjustment.storeId(), "ERROR",
+                        null, null, null, cause.getMessage());
+            }));
+        }
+
+        List<StockAdjustmentResponse.AdjustmentResultDto> results = pending.stream()
+                .map(CompletableFuture::join)
+                .toList();
+
+        return new StockAdjustmentResponse(request.batchId(), results, LocalDateTime.now());
+    }
+
+    public void cleanupExpiredReservation() {
+        logger.debug("cleaning up expired reservations in reservation engine");
+
+        List<Reservation> expired = new ArrayList<>(reservationRepository.findExpiredActiveReservations(LocalDateTime.now()));
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.isExpired()) {
+                expired.add(reservation);
+            }
+        }
+
+        Map<String, Reservation> unique = new LinkedHashMap<>();
+        expired.forEach(reservation -> unique.putIfAbsent(reservation.getReservationId(), reservation));
+
+        expire(unique.values());
+        logger.info("Cleaned up {} expired reservations", unique.size());
+    }
+
+    /**
+     * Expires the given reservations if they are still active and past their TTL.
+     */
+    public void expireReservations(List<String> reservationIds) {
+        List<Reservation> candidates = new ArrayList<>(reservationIds.size());
+        List<String> missing = new ArrayList<>();
+        for (String reservationId : reservationIds) {
+            Reservation reservation = reservations.get(reservationId);
+            if (reservation != null) {
+                candidates.add(reservation);
+            } else {
+                missing.add(reservationId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            reservationRepository.findAllById(missing).stream()
+                    .filter(reservation -> reservation.getStatus() == Reservation.ReservationStatus.ACTIVE)
+                    .forEach(candidates::add);
+        }
+        expire(candidates);
+    }
+
+    private void expire(Collection<Reservation> candidates) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Reservation candidate : candidates) {
+            String key = key(candidate.getProductId(), candidate.getStoreId());
+            reservations.putIfAbsent(candidate.getReservationId(), candidate);
+            pending.add(submit(key, () -> {
+                Reservation reservation = reservations.get(candidate.getReservationId());
+                if (reservation == null || reservation.getStatus() != Reservation.ReservationStatus.ACTIVE
+                        || !reservation.isExpired()) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                StockSlot slot = slot(key, reservation.getProductId(), reservation.getStoreId());
+                slot.inventory.releaseReservation(reservation.getQuantity());
+                reservation.expire();
+                reservations.remove(reservation.getReservationId());
+                return enqueue(slot, reservation, false, StockEvent.expire(reservation)).durable;
+            }).thenCompose(durable -> durable).exceptionally(e -> {
+                logger.error("Error releasing expired reservation {}: {}",
+                        candidate.getReservationId(), e.getMessage());
+                return null;
+            }));
+        }
+        pending.forEach(CompletableFuture::join);
+    }
+
+    private Reservation findReservation(String reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation != null) {
+            return reservation;
+        }
+        Reservation stored = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException(reservationId));
+        if (stored.getStatus() == Reservation.ReservationStatus.ACTIVE) {
+            reservations.putIfAbsent(reservationId, stored);
+        }
+        return stored;
+    }
+
+    private StockSlot slot(String key, String productId, String storeId) {
+        StockSlot slot = slots.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        // loaded outside the map's bin lock; only the key's partition thread gets here
+        StockSlot loaded = new StockSlot(inventoryRepository.findByProductIdAndStoreId(productId, storeId)
+                .orElseThrow(() -> new InventoryServiceException(
+                        "No inventory found for product " + productId + " in store " + storeId)));
+        StockSlot existing = slots.putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private PendingWrite enqueue(StockSlot slot, Reservation reservation, boolean insert, StockEvent event) {
+        PendingWrite write = new PendingWrite(slot, reservation, insert, event);
+        writeQueue.add(write);
+        return write;
+    }
+
+    private <T> CompletableFuture<T> submit(String key, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, partitions[Math.floorMod(key.hashCode(), partitions.length)]);
+        } catch (RejectedExecutionException e) {
+            throw new EngineUnavailableException("Reservation engine is saturated, please retry", RETRY_AFTER_SECONDS, e);
+        }
+    }
+
+    private PendingWrite execute(String key, Supplier<PendingWrite> task) {
+        return await(submit(key, task));
+    }
+
+    /**
+     * Waits for the batch holding the write to commit; false if it has not committed yet and may
+     * still do so later.
+     */
+    private boolean awaitDurable(PendingWrite write) {
+        try {
+            write.durable.get(writeTimeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException("Interrupted waiting for reservation engine", RETRY_AFTER_SECONDS, e);
+        }
+    }
+
+    private void awaitApplied(PendingWrite write) {
+        if (!awaitDurable(write)) {
+            throw new EngineUnavailableException(
+                    "Timed out persisting the change; it is queued and may still be applied", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (TimeoutException e) {
+            throw new EngineUnavailableException("Timed out waiting for reservation engine", RETRY_AFTER_SECONDS, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException("Interrupted waiting for reservation engine", RETRY_AFTER_SECONDS, e);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new EngineUnavailableException("Reservation engine failure", RETRY_AFTER_SECONDS, e.getCause());
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(flushBatchSize);
+        while (running || !writeQueue.isEmpty()) {
+            try {
+                PendingWrite first = writeQueue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                writeQueue.drainTo(batch, flushBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the batch in one transaction. Inventory rows get the sum of the batch's deltas rather
+     * than the slots' counters, so a change made to a row outside the engine is not overwritten.
+     */
+    private void flush(List<PendingWrite> batch) {
+        Map<StockSlot, PendingWrite> latestBySlot = new LinkedHashMap<>();
+        Map<StockSlot, int[]> deltasBySlot = new LinkedHashMap<>();
+        List<Reservation> inserts = new ArrayList<>();
+        List<InventoryJdbcRepository.ReservationStatusChange> statusUpdates = new ArrayList<>();
+        List<StockEvent> events = new ArrayList<>(batch.size());
+        List<PendingWrite> failed = new ArrayList<>();
+
+        for (PendingWrite write : batch) {
+            if (!write.slot.valid) {
+                failed.add(write);
+                continue;
+            }
+            latestBySlot.put(write.slot, write);
+            int[] deltas = deltasBySlot.computeIfAbsent(write.slot, slot -> new int[3]);
+            deltas[0] += write.availableDelta;
+            deltas[1] += write.reservedDelta;
+            deltas[2] += write.totalDelta;
+            events.add(write.event);
+            if (write.reservation != null) {
+                if (write.insert) {
+                    inserts.add(write.reservation);
+                } else {
+                    statusUpdates.add(new InventoryJdbcRepository.ReservationStatusChange(
+                            write.reservation.getReservationId(), write.status));
+                }
+            }
+        }
+
+        List<InventoryJdbcRepository.InventoryDelta> inventoryUpdates = latestBySlot.values().stream()
+                .map(write -> {
+                    int[] deltas = deltasBySlot.get(write.slot);
+                    return new InventoryJdbcRepository.InventoryDelta(write.slot.inventory.getId(),
+                            deltas[0], deltas[1], deltas[2], write.timestamp);
+                })
+                .toList();
+
+        if (!failed.isEmpty()) {
+            fail(failed, new EngineUnavailableException("Inventory state was reloaded, please retry", RETRY_AFTER_SECONDS));
+            batch = batch.stream().filter(write -> write.slot.valid).toList();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcRepository.addInventoryDeltas(inventoryUpdates);
+                jdbcRepository.insertReservations(inserts);
+                jdbcRepository.updateReservationStatuses(statusUpdates);
+                latestBySlot.keySet().stream()
+                        .map(slot -> slot.inventory.getProductId())
+                        .distinct()
+                        .forEach(availabilityCache::invalidate);
+                journal.recordAll(events);
+            });
+            batch.forEach(write -> write.durable.complete(null));
+            logger.debug("Flushed {} engine writes ({} inventory rows)", batch.size(), inventoryUpdates.size());
+        } catch (RuntimeException e) {
+            logger.error("Reservation engine flush of {} writes failed: {}", batch.size(), e.getMessage());
+            for (PendingWrite write : batch) {
+                write.slot.valid = false;
+                slots.remove(key(write.slot.inventory.getProductId(), write.slot.inventory.getStoreId()), write.slot);
+            }
+            fail(batch, new EngineUnavailableException("Failed to persist inventory change", RETRY_AFTER_SECONDS, e));
+        }
+    }
+
+    /**
+     * Fails writes that never reached the database. Their slots are reloaded from it, which undoes
+     * their stock changes. A reservation already returned as {@code PENDING} is recorded as
+     * {@code CANCELLED}, so its holder finds it no longer active instead of unknown.
+     */
+    private void fail(List<PendingWrite> writes, EngineUnavailableException failure) {
+        List<Reservation> abandoned = new ArrayList<>();
+        for (PendingWrite write : writes) {
+            if (write.reservation != null) {
+                reservations.remove(write.reservation.getReservationId());
+            }
+            if (!write.fail() && write.insert) {
+                Reservation reservation = write.reservation;
+                Reservation cancelled = new Reservation(reservation.getReservationId(), reservation.getProductId(),
+                        reservation.getStoreId(), reservation.getCustomerId(), reservation.getQuantity(),
+                        reservation.getExpiresAt());
+                cancelled.cancel();
+                abandoned.add(cancelled);
+            }
+            write.durable.completeExceptionally(failure);
+        }
+        if (abandoned.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcRepository.insertReservations(abandoned));
+            logger.warn("Recorded {} pending reservations whose write failed as cancelled", abandoned.size());
+        } catch (RuntimeException e) {
+            logger.error("Failed to record {} pending reservations as cancelled: {}", abandoned.size(), e.getMessage());
+        }
+    }
+
+    private static String key(String productId, String storeId) {
+        return productId + ":" + storeId;
+    }
+
+    private static final class StockSlot {
+        private final Inventory inventory;
+        private volatile boolean valid = true;
+
+        // counters as of the last queued write; only the partition thread touches them
+        private int queuedAvailable;
+        private int queuedReserved;
+        private int queuedTotal;
+
+        private StockSlot(Inventory inventory) {
+            this.inventory = inventory;
+            this.queuedAvailable = inventory.getAvailable();
+            this.queuedReserved = inventory.getReserved();
+            this.queuedTotal = inventory.getTotal();
+        }
+    }
+
+    private static final class PendingWrite {
+        private final StockSlot slot;
+        private final Reservation reservation;
+        private final boolean insert;
+        private final Reservation.ReservationStatus status;
+        private final StockEvent event;
+        private final int availableDelta;
+        private final int reservedDelta;
+        private final int totalDelta;
+        private final int total;
+        private final LocalDateTime timestamp = LocalDateTime.now();
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+        private final AtomicInteger outcome = new AtomicInteger(OPEN);
+
+        private PendingWrite(StockSlot slot, Reservation reservation, boolean insert, StockEvent event) {
+            this.slot = slot;
+            this.reservation = reservation;
+            this.insert = insert;
+            this.event = event;
+            this.status = reservation != null ? reservation.getStatus() : null;
+            Inventory inventory = slot.inventory;
+            this.availableDelta = inventory.getAvailable() - slot.queuedAvailable;
+            this.reservedDelta = inventory.getReserved() - slot.queuedReserved;
+            this.totalDelta = inventory.getTotal() - slot.queuedTotal;
+            this.total = inventory.getTotal();
+            slot.queuedAvailable = inventory.getAvailable();
+            slot.queuedReserved = inventory.getReserved();
+            slot.queuedTotal = inventory.getTotal();
+        }
+
+        /**
+         * Called by a caller that stopped waiting; false if the write already failed.
+         */
+        private boolean abandon() {
+            return outcome.compareAndSet(OPEN, ABANDONED);
+        }
+
+        /**
+         * Called when the write cannot be persisted; false if its caller had stopped waiting.
+         */
+        private boolean fail() {
+            return outcome.compareAndSet(OPEN, FAILED);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.repository.ReservationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of active reservation expirations. Level 0 has one slot per
+ * {@code inventory.expiry.tick-ms}; each further level covers a full turn of the one below and
+ * cascades its entries down as the clock reaches them. Adding an expiration and advancing one
+ * tick are O(1), so expired reservations can be released within a tick of {@code expiresAt}
+ * without scanning the reservations table. The wheel is rebuilt from the database on startup.
+ * <p>
+ * Entries are hints: whoever releases them must re-check that the reservation is still active
+ * and expired, since it may have been confirmed or released in the meantime. Entries whose release
+ * failed are handed back with {@link #retry} and fire again {@code inventory.expiry.retry-delay-ms}
+ * later.
+ */
+@Component
+public class ReservationExpiryWheel implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationExpiryWheel.class);
+
+    private final ReservationRepository reservationRepository;
+    private final int batchSize;
+    private final long retryDelayMs;
+    private final Level root;
+    private int size;
+
+    public ReservationExpiryWheel(ReservationRepository reservationRepository,
+                                  @Value("${inventory.expiry.tick-ms:100}") Long tickMs,
+                                  @Value("${inventory.expiry.wheel-size:512}") Integer wheelSize,
+                                  @Value("${inventory.expiry.batch-size:50}") Integer batchSize,
+                                  @Value("${inventory.expiry.retry-delay-ms:1000}") Long retryDelayMs) {
+        this.reservationRepository = reservationRepository;
+        this.batchSize = batchSize;
+        this.retryDelayMs = retryDelayMs;
+        this.root = new Level(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int loaded = 0;
+        for (Object[] row : reservationRepository.findActiveExpirations()) {
+            schedule((String) row[0], (String) row[1], (String) row[2], (LocalDateTime) row[3]);
+            loaded++;
+        }
+        logger.info("Reservation expiry wheel rebuilt with {} active reservations", loaded);
+    }
+
+    public void schedule(Reservation reservation) {
+        schedule(reservation.getReservationId(), reservation.getProductId(), reservation.getStoreId(),
+                reservation.getExpiresAt());
+    }
+
+    public synchronized void schedule(String reservationId, String productId, String storeId, LocalDateTime expiresAt) {
+        long deadline = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        add(new Expiration(reservationId, productId, storeId, deadline, deadline));
+    }
+
+    /**
+     * Schedules expirations whose release failed to fire again after the retry delay. They keep
+     * their original deadline, so the lag they are reported with includes the failed attempts.
+     */
+    public synchronized void retry(List<Expiration> expirations) {
+        long fireAt = System.currentTimeMillis() + retryDelayMs;
+        for (Expiration expiration : expirations) {
+            add(new Expiration(expiration.reservationId(), expiration.productId(), expiration.storeId(),
+                    expiration.deadline(), fireAt));
+        }
+    }
+
+    private void add(Expiration expiration) {
+        if (!root.add(expiration)) {
+            root.overdue.add(expiration);
+        }
+        size++;
+    }
+
+    /**
+     * Advances the wheel to now and returns the expirations that became due, grouped by
+     * inventory row and split into batches of at most {@code inventory.expiry.batch-size}.
+     */
+    public List<List<Expiration>> advance() {
+        List<Expiration> due = new ArrayList<>();
+        synchronized (this) {
+            due.addAll(root.overdue);
+            root.overdue.clear();
+            root.advance(System.currentTimeMillis(), due::add);
+            size -= due.size();
+        }
+        if (due.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, List<Expiration>> byRow = new LinkedHashMap<>();
+        due.forEach(expiration -> byRow.computeIfAbsent(expiration.productId() + ":" + expiration.storeId(),
+                ignored -> new ArrayList<>()).add(expiration));
+
+        List<List<Expiration>> batches = new ArrayList<>();
+        for (List<Expiration> row : byRow.values()) {
+            for (int i = 0; i < row.size(); i += batchSize) {
+                batches.add(row.subList(i, Math.min(i + batchSize, row.size())));
+            }
+        }
+        return batches;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventory.expiry.scheduled", this, ReservationExpiryWheel::size)
+                .description("Active reservations waiting in the expiry wheel")
+                .register(registry);
+    }
+
+    /**
+     * A reservation expiring at {@code deadline}, placed in the wheel at {@code fireAt}: the
+     * deadline itself, or later when it is retried.
+     */
+    public record Expiration(String reservationId, String productId, String storeId, long deadline, long fireAt) {}
+
+    private final class Level {
+        private final long tickMs;
+        private final long span;
+        private final ArrayDeque<Expiration>[] slots;
+        private final List<Expiration> overdue = new ArrayList<>();
+        private long currentTime;
+        private Level overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.span = tickMs * wheelSize;
+            this.slots = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                slots[i] = new ArrayDeque<>();
+            }
+            this.currentTime = startMs - startMs % tickMs;
+        }
+
+        /**
+         * Places the expiration in this level or a higher one. Returns false when it is already
+         * due, so the caller fires it. Higher levels are only handed entries beyond the span of
+         * the level below, which always fall after their current slot.
+         */
+        private boolean add(Expiration expiration) {
+            long deadline = expiration.fireAt();
+            if (deadline < currentTime) {
+                return false;
+            }
+            if (deadline < currentTime + span) {
+                slots[(int) ((deadline / tickMs) % slots.length)].add(expiration);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(span, slots.length, currentTime);
+            }
+            return overflow.add(expiration);
+        }
+
+        /**
+         * Root only: fires every slot whose whole interval lies before {@code now}, cascading
+         * higher levels down as the clock reaches their slots.
+         */
+        private void advance(long now, Consumer<Expiration> expired) {
+            while (currentTime + tickMs <= now) {
+                ArrayDeque<Expiration> slot = slots[(int) ((currentTime / tickMs) % slots.length)];
+                while (!slot.isEmpty()) {
+                    expired.accept(slot.poll());
+                }
+                currentTime += tickMs;
+                if (overflow != null) {
+                    overflow.cascade(currentTime, expired);
+                }
+            }
+        }
+
+        private void cascade(long time, Consumer<Expiration> expired) {
+            long target = time - time % tickMs;
+            while (currentTime < target) {
+                currentTime += tickMs;
+                ArrayDeque<Expiration> slot = slots[(int) ((currentTime / tickMs) % slots.length)];
+                while (!slot.isEmpty()) {
+                    Expiration expiration = slot.poll();
+                    if (!root.add(expiration)) {
+                        expired.accept(expiration);
+                    }
+                }
+            }
+            if (overflow != null) {
+                overflow.cascade(currentTime, expired);
+            }
+        }
+    }
+}
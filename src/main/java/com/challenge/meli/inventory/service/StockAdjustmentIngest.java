@@ -0,0 +1,146 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.dto.StockAdjustmentRequest;
+import com.challenge.meli.inventory.dto.StockAdjustmentResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming bulk stock adjustments. Reads newline-delimited {@link StockAdjustmentRequest.AdjustmentDto}
+ * objects with the Jackson streaming parser, applies them in chunks of
+ * {@code inventory.adjustment.stream-chunk-size} and writes one
+ * {@link StockAdjustmentResponse.AdjustmentResultDto} line per item, in input order, as each
+ * chunk commits. The next chunk is only read once the previous one has been written back, so a
+ * slow database slows down reading instead of buffering the feed.
+ */
+@Service
+public class StockAdjustmentIngest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockAdjustmentIngest.class);
+
+    private final InventoryService inventoryService;
+    private final ReservationEngine reservationEngine;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${inventory.adjustment.stream-chunk-size:2000}")
+    private Integer chunkSize;
+
+    public StockAdjustmentIngest(InventoryService inventoryService, ReservationEngine reservationEngine,
+                                 ObjectMapper objectMapper, Validator validator) {
+        this.inventoryService = inventoryService;
+        this.reservationEngine = reservationEngine;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Consumes the whole feed and returns the number of items read. A malformed line ends the
+     * stream with a final error line, since the parser cannot resynchronize after it.
+     */
+    public long ingest(String batchId, String source, InputStream input, OutputStream output) throws IOException {
+        long items = 0;
+        int chunks = 0;
+        List<StockAdjustmentRequest.AdjustmentDto> chunk = new ArrayList<>(chunkSize);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            while (true) {
+                StockAdjustmentRequest.AdjustmentDto adjustment;
+                try {
+                    if (parser.nextToken() == null) {
+                        break;
+                    }
+                    adjustment = objectMapper.readValue(parser, StockAdjustmentRequest.AdjustmentDto.class);
+                } catch (JsonProcessingException e) {
+                    apply(batchId + "-" + chunks++, source, chunk, output);
+                    write(output, new StockAdjustmentResponse.AdjustmentResultDto(null, null, "ERROR", null, null, null,
+                            "Malformed adjustment after item " + items + ": " + e.getOriginalMessage()));
+                    output.flush();
+                    logger.warn("Stock adjustment stream {} stopped after {} items: {}", batchId, items, e.getOriginalMessage());
+                    return items;
+                }
+
+                chunk.add(adjustment);
+                items++;
+                if (chunk.size() >= chunkSize) {
+                    apply(batchId + "-" + chunks++, source, chunk, output);
+                }
+            }
+        }
+        apply(batchId + "-" + chunks++, source, chunk, output);
+
+        logger.info("Stock adjustment stream {} processed {} items in {} chunks", batchId, items, chunks);
+        return items;
+    }
+
+    private void apply(String chunkId, String source, List<StockAdjustmentRequest.AdjustmentDto> chunk,
+                       OutputStream output) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        StockAdjustmentResponse.AdjustmentResultDto[] results = new StockAdjustmentResponse.AdjustmentResultDto[chunk.size()];
+        List<StockAdjustmentRequest.AdjustmentDto> valid = new ArrayList<>(chunk.size());
+        List<Integer> validIndexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            StockAdjustmentRequest.AdjustmentDto adjustment = chunk.get(i);
+            Set<ConstraintViolation<StockAdjustmentRequest.AdjustmentDto>> violations = validator.validate(adjustment);
+            if (violations.isEmpty()) {
+                valid.add(adjustment);
+                validIndexes.add(i);
+            } else {
+                results[i] = error(adjustment, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            List<StockAdjustmentResponse.AdjustmentResultDto> applied;
+            try {
+                StockAdjustmentRequest request = new StockAdjustmentRequest(valid, chunkId, source);
+                applied = (reservationEngine.isEnabled()
+                        ? reservationEngine.adjustStock(request)
+                        : inventoryService.adjustStock(request)).results();
+            } catch (RuntimeException e) {
+                logger.error("Error processing stock adjustment chunk {}: {}", chunkId, e.getMessage());
+                applied = valid.stream().map(adjustment -> error(adjustment, e.getMessage())).toList();
+            }
+            for (int i = 0; i < validIndexes.size(); i++) {
+                results[validIndexes.get(i)] = applied.get(i);
+            }
+        }
+
+        for (StockAdjustmentResponse.AdjustmentResultDto result : results) {
+            write(output, result);
+        }
+        output.flush();
+        chunk.clear();
+    }
+
+    private void write(OutputStream output, StockAdjustmentResponse.AdjustmentResultDto result) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(result));
+        output.write('\n');
+    }
+
+    private static StockAdjustmentResponse.AdjustmentResultDto error(StockAdjustmentRequest.AdjustmentDto adjustment, String message) {
+        return new StockAdjustmentResponse.AdjustmentResultDto(adjustment.productId(), adjustment.storeId(), "ERROR",
+                null, null, null, message);
+    }
+}
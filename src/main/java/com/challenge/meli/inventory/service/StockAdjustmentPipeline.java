@@ -0,0 +1,214 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.dto.StockAdjustmentRequest;
+import com.challenge.meli.inventory.dto.StockAdjustmentResponse;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import com.challenge.meli.inventory.repository.InventoryJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Batch stock adjustments. Items are grouped by (productId, storeId) and applied in request
+ * order against the row's counters in memory, so each item keeps its own previous/new stock
+ * and error, while the row is written once with the net result.
+ * <p>
+ * Rows are cut into chunks of whole products (up to {@code inventory.adjustment.chunk-size}
+ * rows) that run in parallel, each in its own transaction: one {@code SELECT ... FOR UPDATE}
+ * ordered by (productId, storeId) and one JDBC batch update. Chunks of a batch never share a
+ * product and every chunk locks in the same order, so concurrent batches cannot deadlock.
+ * Split (bucketed) rows go through {@link InventoryBucketService#adjustStock} one item at a time.
+ */
+@Service
+public class StockAdjustmentPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockAdjustmentPipeline.class);
+
+    private static final String ADJUSTMENT_FAILED = "Failed to apply stock adjustment";
+
+    private final InventoryJdbcRepository inventoryJdbcRepository;
+    private final InventoryBucketService bucketService;
+    private final AvailabilityCache availabilityCache;
+    private final StockEventJournal journal;
+    private final TransactionTemplate chunkTransaction;
+
+    @Value("${inventory.adjustment.chunk-size:500}")
+    private Integer chunkSize;
+
+    @Value("${inventory.adjustment.parallelism:4}")
+    private Integer parallelism;
+
+    private ExecutorService executor;
+
+    public StockAdjustmentPipeline(InventoryJdbcRepository inventoryJdbcRepository, InventoryBucketService bucketService,
+                                   AvailabilityCache availabilityCache, StockEventJournal journal,
+                                   PlatformTransactionManager transactionManager) {
+        this.inventoryJdbcRepository = inventoryJdbcRepository;
+        this.bucketService = bucketService;
+        this.availabilityCache = availabilityCache;
+        this.journal = journal;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 4), runnable -> new Thread(runnable, "stock-adjustment"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public StockAdjustmentResponse process(StockAdjustmentRequest request) {
+        List<StockAdjustmentRequest.AdjustmentDto> adjustments = request.adjustments();
+        StockAdjustmentResponse.AdjustmentResultDto[] results = new StockAdjustmentResponse.AdjustmentResultDto[adjustments.size()];
+
+        SortedMap<String, SortedMap<String, List<Integer>>> rows = new TreeMap<>();
+        List<Integer> bucketed = new ArrayList<>();
+        for (int i = 0; i < adjustments.size(); i++) {
+            StockAdjustmentRequest.AdjustmentDto adjustment = adjustments.get(i);
+            if (bucketService.isBucketed(adjustment.productId(), adjustment.storeId())) {
+                bucketed.add(i);
+            } else {
+                rows.computeIfAbsent(adjustment.productId(), ignored -> new TreeMap<>())
+                        .computeIfAbsent(adjustment.storeId(), ignored -> new ArrayList<>())
+                        .add(i);
+            }
+        }
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (SortedMap<String, SortedMap<String, List<Integer>>> chunk : partition(rows)) {
+            chunks.add(CompletableFuture.runAsync(() -> processChunk(chunk, adjustments, results), executor));
+        }
+        for (Integer index : bucketed) {
+            results[index] = adjustBucketed(adjustments.get(index));
+        }
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+
+        logger.info("Stock adjustment batch {}: {} items over {} rows in {} chunks", request.batchId(),
+                adjustments.size(), rows.values().stream().mapToInt(Map::size).sum(), chunks.size());
+        return new StockAdjustmentResponse(request.batchId(), Arrays.asList(results), LocalDateTime.now());
+    }
+
+    private List<SortedMap<String, SortedMap<String, List<Integer>>>> partition(
+            SortedMap<String, SortedMap<String, List<Integer>>> rows) {
+        List<SortedMap<String, SortedMap<String, List<Integer>>>> chunks = new ArrayList<>();
+        SortedMap<String, SortedMap<String, List<Integer>>> current = new TreeMap<>();
+        int rowCount = 0;
+        for (Map.Entry<String, SortedMap<String, List<Integer>>> product : rows.entrySet()) {
+            if (!current.isEmpty() && rowCount + product.getValue().size() > chunkSize) {
+                chunks.add(current);
+                current = new TreeMap<>();
+                rowCount = 0;
+            }
+            current.put(product.getKey(), product.getValue());
+            rowCount += product.getValue().size();
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private void processChunk(SortedMap<String, SortedMap<String, List<Integer>>> chunk,
+                              List<StockAdjustmentRequest.AdjustmentDto> adjustments,
+                              StockAdjustmentResponse.AdjustmentResultDto[] results) {
+        try {
+            chunkTransaction.executeWithoutResult(status -> {
+                // exactly the adjusted rows, already in (productId, storeId) order
+                List<InventoryJdbcRepository.InventoryKey> keys = new ArrayList<>();
+                chunk.forEach((productId, stores) -> stores.keySet()
+                        .forEach(storeId -> keys.add(new InventoryJdbcRepository.InventoryKey(productId, storeId))));
+
+                Map<String, InventoryJdbcRepository.InventoryRow> locked = new HashMap<>();
+                for (InventoryJdbcRepository.InventoryRow row : inventoryJdbcRepository.lockInventoryRows(keys)) {
+                    locked.put(row.productId() + ":" + row.storeId(), row);
+                }
+
+                List<InventoryJdbcRepository.InventoryCounters> counters = new ArrayList<>();
+                List<StockEvent> events = new ArrayList<>();
+                LocalDateTime now = LocalDateTime.now();
+                chunk.forEach((productId, stores) -> stores.forEach((storeId, indexes) -> {
+                    InventoryJdbcRepository.InventoryRow row = locked.get(productId + ":" + storeId);
+                    if (row == null) {
+                        indexes.forEach(index -> results[index] = error(adjustments.get(index), "Inventory not found"));
+                        return;
+                    }
+                    int available = row.available();
+                    for (Integer index : indexes) {
+                        StockAdjustmentRequest.AdjustmentDto adjustment = adjustments.get(index);
+                        int newAvailable = available + adjustment.delta();
+                        if (newAvailable < 0) {
+                            results[index] = error(adjustment, "Stock cannot be negative");
+                            continue;
+                        }
+                        String eventId = "EVT-" + UUID.randomUUID();
+                        results[index] = new StockAdjustmentResponse.AdjustmentResultDto(productId, storeId, "SUCCESS",
+                                available + row.reserved(), newAvailable + row.reserved(), eventId, null);
+                        events.add(StockEvent.adjust(productId, storeId, eventId, adjustment.delta()));
+                        available = newAvailable;
+                    }
+                    if (available != row.available()) {
+                        counters.add(new InventoryJdbcRepository.InventoryCounters(row.inventoryId(), available,
+                                row.reserved(), available + row.reserved(), now));
+                    }
+                }));
+
+                inventoryJdbcRepository.updateInventoryCounters(counters);
+                journal.recordAll(events);
+                chunk.keySet().forEach(availabilityCache::invalidate);
+            });
+        } catch (RuntimeException e) {
+            logger.error("Error processing stock adjustment chunk of {} products", chunk.size(), e);
+            chunk.values().forEach(stores -> stores.values().forEach(indexes ->
+                    indexes.forEach(index -> results[index] = error(adjustments.get(index), ADJUSTMENT_FAILED))));
+        }
+    }
+
+    private StockAdjustmentResponse.AdjustmentResultDto adjustBucketed(StockAdjustmentRequest.AdjustmentDto adjustment) {
+        try {
+            String eventId = "EVT-" + UUID.randomUUID();
+            int[] stock = chunkTransaction.execute(status -> {
+                int[] adjusted = bucketService.adjustStock(adjustment.productId(), adjustment.storeId(), adjustment.delta());
+                availabilityCache.invalidate(adjustment.productId());
+                journal.record(StockEvent.adjust(adjustment.productId(), adjustment.storeId(), eventId, adjustment.delta()));
+                return adjusted;
+            });
+            return new StockAdjustmentResponse.AdjustmentResultDto(adjustment.productId(), adjustment.storeId(), "SUCCESS",
+                    stock[0], stock[1], eventId, null);
+        } catch (InventoryServiceException | IllegalArgumentException e) {
+            logger.error("Error processing stock adjustment: {}", e.getMessage());
+            return error(adjustment, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error processing stock adjustment", e);
+            return error(adjustment, ADJUSTMENT_FAILED);
+        }
+    }
+
+    private static StockAdjustmentResponse.AdjustmentResultDto error(StockAdjustmentRequest.AdjustmentDto adjustment, String message) {
+        return new StockAdjustmentResponse.AdjustmentResultDto(adjustment.productId(), adjustment.storeId(), "ERROR",
+                null, null, null, message);
+    }
+}
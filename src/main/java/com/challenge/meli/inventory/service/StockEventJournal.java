@@ -0,0 +1,642 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.dto.StockEventPage;
+import com.challenge.meli.inventory.exception.InventoryServiceException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of committed stock mutations ({@link StockEvent}), written through
+ * memory-mapped segment files under {@code inventory.journal.directory}. Off by default; enabling
+ * it requires the directory to be set, since two processes must never share one.
+ * <p>
+ * Each event is framed as {@code [length][crc32][payload]} and addressed by its byte offset in the
+ * journal. Segments are named after the offset of their first event, so offsets keep growing from
+ * one segment to the next. Events recorded inside a transaction are appended after it commits:
+ * rolled back changes never reach the journal, and nothing extra is written under row locks.
+ * <p>
+ * A flusher thread forces the mapped pages to disk every {@code inventory.journal.flush-interval-ms},
+ * so one fsync covers every event appended since the previous one. With
+ * {@code inventory.journal.sync-commit=true} callers also wait for the flush that covers their
+ * events. On startup the last segment is cut at the first frame that fails its checksum.
+ * <p>
+ * Listeners added with {@link #addListener} get the same committed events in-process, also when
+ * the journal itself is disabled.
+ * <p>
+ * A transaction holds a shared commit gate from just before it commits until its events are
+ * published; {@link #cut} takes it exclusively, which gives snapshots an offset that splits
+ * committed changes exactly.
+ */
+@Component
+public class StockEventJournal implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockEventJournal.class);
+
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    @Value("${inventory.journal.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${inventory.journal.directory:}")
+    private String directory;
+
+    @Value("${inventory.journal.segment-size-mb:64}")
+    private Integer segmentSizeMb;
+
+    @Value("${inventory.journal.flush-interval-ms:10}")
+    private Long flushIntervalMs;
+
+    @Value("${inventory.journal.sync-commit:false}")
+    private Boolean syncCommit;
+
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final List<Segment> unforced = new ArrayList<>();
+    private final Object appendedSignal = new Object();
+    private final Object flushedSignal = new Object();
+    private final LongAdder appended = new LongAdder();
+    private final List<Consumer<List<StockEvent>>> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+
+    private Path root;
+    private Segment active;
+    private volatile long endOffset;
+    private volatile long durableOffset;
+    private volatile boolean running;
+    private Thread flusher;
+    private Timer flushes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (directory.isBlank()) {
+            throw new IllegalStateException("inventory.journal.directory must be set when the journal is enabled");
+        }
+        root = Path.of(directory);
+        Files.createDirectories(root);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(root)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+
+        for (Path file : files) {
+            Segment segment = map(file, baseOffset(file), (int) Files.size(file));
+            segment.size = scan(segment.buffer);
+            segment.sealedSize = segment.size;
+            segments.put(segment.base, segment);
+        }
+
+        if (segments.isEmpty()) {
+            active = create(0);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.sealedSize = -1;
+            int marker = active.size + 4 <= active.buffer.capacity() ? active.buffer.getInt(active.size) : END_OF_SEGMENT;
+            if (marker == END_OF_SEGMENT) {
+                active.sealedSize = active.size;
+                active = create(active.base + active.size);
+            } else if (marker != 0) {
+                logger.warn("Stock event journal segment {} has a torn write at {}, truncating", active.base, active.size);
+                byte[] zeros = new byte[64 * 1024];
+                for (int i = active.size; i < active.buffer.capacity(); i += zeros.length) {
+                    active.buffer.put(i, zeros, 0, Math.min(zeros.length, active.buffer.capacity() - i));
+                }
+                active.buffer.force();
+            }
+        }
+        endOffset = active.base + active.size;
+        durableOffset = endOffset;
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "stock-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Stock event journal opened at {} with {} segments, end offset {}", root, segments.size(), endOffset);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!enabled || flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        flush();
+    }
+
+    /**
+     * Called with every batch of committed events, on the committing thread. Listeners must not
+     * block.
+     */
+    public void addListener(Consumer<List<StockEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    public void record(StockEvent event) {
+        recordAll(List.of(event));
+    }
+
+    /**
+     * Records the events once the surrounding transaction commits, or right away outside one.
+     * Journal failures are logged rather than thrown, since the change itself is already committed.
+     */
+    public void recordAll(List<StockEvent> events) {
+        if (events.isEmpty() || (!enabled && listeners.isEmpty())) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending().events.addAll(events);
+        } else {
+            publish(events);
+        }
+    }
+
+    /**
+     * Appends the events and returns the offset just past the last one.
+     */
+    public long append(List<StockEvent> events) {
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        for (StockEvent event : events) {
+            payloads.add(encode(event));
+        }
+
+        long end;
+        synchronized (this) {
+            if (!running) {
+                throw new InventoryServiceException("Stock event journal is closed");
+            }
+            for (byte[] payload : payloads) {
+                write(payload);
+            }
+            end = active.base + active.size;
+            endOffset = end;
+        }
+        appended.add(events.size());
+        synchronized (appendedSignal) {
+            appendedSignal.notifyAll();
+        }
+        if (syncCommit) {
+            awaitDurable(end);
+        }
+        return end;
+    }
+
+    /**
+     * Up to {@code limit} events from {@code fromOffset} on, waiting up to {@code waitMillis} for
+     * new events when there are none past it. Offsets before the oldest segment start at its first
+     * event.
+     */
+    public StockEventPage read(long fromOffset, int limit, long waitMillis) {
+        if (!enabled) {
+            throw new InventoryServiceException("Stock event journal is disabled");
+        }
+        if (waitMillis > 0 && endOffset <= fromOffset) {
+            awaitAppend(fromOffset, waitMillis);
+        }
+
+        long published = endOffset;
+        long offset = Math.max(fromOffset, segments.firstKey());
+        List<StockEventPage.EntryDto> entries = new ArrayList<>(Math.min(limit, 1024));
+        while (entries.size() < limit && offset < published) {
+            Map.Entry<Long, Segment> floor = segments.floorEntry(offset);
+            if (floor == null) {
+                // truncated while reading
+                offset = segments.firstKey();
+                continue;
+            }
+            Segment segment = floor.getValue();
+            int sealed = segment.sealedSize;
+            long limitOffset = sealed >= 0 ? segment.base + sealed : Math.min(published, segment.base + segment.buffer.capacity());
+            if (offset >= limitOffset) {
+                Long next = segments.higherKey(segment.base);
+                if (next == null) {
+                    break;
+                }
+                offset = next;
+                continue;
+            }
+
+            int position = (int) (offset - segment.base);
+            int length = segment.buffer.getInt(position);
+            if (length <= 0 || offset + HEADER + length > limitOffset
+                    || crc(segment.buffer, position + HEADER, length) != segment.buffer.getInt(position + 4)) {
+                throw new InventoryServiceException("No stock event starts at offset " + offset);
+            }
+            byte[] payload = new byte[length];
+            segment.buffer.get(position + HEADER, payload);
+            entries.add(new StockEventPage.EntryDto(offset, decode(payload)));
+            offset += HEADER + length;
+        }
+        return new StockEventPage(entries, offset, published);
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Offset of the oldest event still in the journal.
+     */
+    public long getStartOffset() {
+        return segments.isEmpty() ? endOffset : segments.firstKey();
+    }
+
+    /**
+     * Runs {@code action} with the end offset while no transaction is between its commit and the
+     * append of its events: every change committed so far is before that offset, every later one
+     * after it. Commits wait while it runs, so keep it short.
+     */
+    public <T> T cut(LongFunction<T> action) {
+        commitGate.writeLock().lock();
+        try {
+            return action.apply(endOffset);
+        } finally {
+            commitGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the sealed, flushed segments that end at or before {@code offset}. Returns how many
+     * were deleted.
+     */
+    public int truncateBefore(long offset) {
+        if (!enabled) {
+            return 0;
+        }
+        int deleted = 0;
+        for (Segment segment : segments.values()) {
+            int sealed = segment.sealedSize;
+            long end = segment.base + sealed;
+            if (segment == active || sealed < 0 || end > offset || end > durableOffset) {
+                break;
+            }
+            segments.remove(segment.base);
+            try {
+                // mapped pages stay readable for readers already holding the segment
+                Files.deleteIfExists(root.resolve(String.format("%020d%s", segment.base, SUFFIX)));
+                deleted++;
+            } catch (IOException e) {
+                logger.warn("Cannot delete journal segment {}: {}", segment.base, e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} stock event journal segments before offset {}", deleted, offset);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("inventory.journal.events", appended, LongAdder::sum)
+                .description("Stock events appended to the journal")
+                .register(registry);
+        Gauge.builder("inventory.journal.unflushed.bytes", this, journal -> journal.endOffset - journal.durableOffset)
+                .description("Journal bytes appended but not yet forced to disk")
+                .register(registry);
+        flushes = Timer.builder("inventory.journal.flush")
+                .description("Time to force appended journal pages to disk")
+                .register(registry);
+    }
+
+    private void publish(List<StockEvent> events) {
+        if (enabled) {
+            try {
+                append(events);
+            } catch (RuntimeException e) {
+                logger.error("Failed to journal {} stock events: {}", events.size(), e.getMessage());
+            }
+        }
+        for (Consumer<List<StockEvent>> listener : listeners) {
+            try {
+                listener.accept(events);
+            } catch (RuntimeException e) {
+                logger.error("Stock event listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private PendingEvents pending() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingEvents pending && pending.journal == this) {
+                return pending;
+            }
+        }
+        PendingEvents pending = new PendingEvents(this);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    /**
+     * Writes one frame into the active segment, rolling to a new segment when it does not fit
+     * along with the end-of-segment marker. The length goes in last, after the checksummed payload.
+     */
+    private void write(byte[] payload) {
+        int frame = HEADER + payload.length;
+        if (frame + 4 > segmentSizeMb * 1024 * 1024) {
+            throw new InventoryServiceException("Stock event does not fit in a journal segment");
+        }
+        if (active.size + frame + 4 > active.buffer.capacity()) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int position = active.size;
+        active.buffer.putInt(position + 4, (int) crc.getValue());
+        active.buffer.put(position + HEADER, payload);
+        active.buffer.putInt(position, payload.length);
+        active.size += frame;
+    }
+
+    private void roll() {
+        active.buffer.putInt(active.size, END_OF_SEGMENT);
+        active.sealedSize = active.size;
+        unforced.add(active);
+        active = create(active.base + active.size);
+    }
+
+    private Segment create(long base) {
+        Segment segment = map(root.resolve(String.format("%020d%s", base, SUFFIX)), base, segmentSizeMb * 1024 * 1024);
+        segments.put(base, segment);
+        return segment;
+    }
+
+    private static Segment map(Path file, long base, int capacity) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(base, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map journal segment " + file, e);
+        }
+    }
+
+    /**
+     * Length of the valid frames at the start of the segment.
+     */
+    private static int scan(MappedByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER + length > buffer.capacity()
+                    || crc(buffer, position + HEADER, length) != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    private static long baseOffset(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static int crc(ByteBuffer buffer, int position, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position, length));
+        return (int) crc.getValue();
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.error("Stock event journal flush failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forces every segment sealed since the last flush and the written part of the active one.
+     */
+    private void flush() {
+        List<Segment> sealed;
+        Segment current;
+        long end;
+        synchronized (this) {
+            end = endOffset;
+            if (end == durableOffset) {
+                return;
+            }
+            sealed = new ArrayList<>(unforced);
+            unforced.clear();
+            current = active;
+        }
+        long started = System.nanoTime();
+        sealed.forEach(segment -> segment.buffer.force());
+        int from = (int) Math.max(0, durableOffset - current.base);
+        int to = (int) (end - current.base);
+        if (to > from) {
+            current.buffer.force(from, to - from);
+        }
+        if (flushes != null) {
+            flushes.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        durableOffset = end;
+        synchronized (flushedSignal) {
+            flushedSignal.notifyAll();
+        }
+    }
+
+    private void awaitDurable(long offset) {
+        long deadline = System.currentTimeMillis() + Math.max(1000, flushIntervalMs * 100);
+        synchronized (flushedSignal) {
+            while (durableOffset < offset && running) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new InventoryServiceException("Timed out waiting for the stock event journal to flush");
+                }
+                try {
+                    flushedSignal.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InventoryServiceException("Interrupted waiting for the stock event journal", e);
+                }
+            }
+        }
+    }
+
+    private void awaitAppend(long offset, long waitMillis) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        synchronized (appendedSignal) {
+            while (endOffset <= offset) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    appendedSignal.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static byte[] encode(StockEvent event) {
+        byte[] productId = bytes(event.productId());
+        byte[] storeId = bytes(event.storeId());
+        byte[] reference = bytes(event.reference());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 8 + 4 + 3 * 2
+                + length(productId) + length(storeId) + length(reference));
+        buffer.put((byte) event.type().ordinal());
+        buffer.putLong(epochMillis(event.timestamp()));
+        buffer.putLong(epochMillis(event.expiresAt()));
+        buffer.putInt(event.quantity());
+        putString(buffer, productId);
+        putString(buffer, storeId);
+        putString(buffer, reference);
+        return buffer.array();
+    }
+
+    private static StockEvent decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        StockEvent.Type type = StockEvent.Type.values()[buffer.get()];
+        LocalDateTime timestamp = dateTime(buffer.getLong());
+        LocalDateTime expiresAt = dateTime(buffer.getLong());
+        int quantity = buffer.getInt();
+        return new StockEvent(type, getString(buffer), getString(buffer), getString(buffer), quantity, expiresAt, timestamp);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        if (value.length > Short.MAX_VALUE) {
+            throw new InventoryServiceException("Stock event field is too long for the journal");
+        }
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : NO_TIME;
+    }
+
+    private static LocalDateTime dateTime(long epochMillis) {
+        return epochMillis != NO_TIME
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                : null;
+    }
+
+    /**
+     * Events recorded by one transaction, published together after it commits. Runs after the
+     * other synchronizations of the transaction (lowest precedence), so listeners reading the
+     * availability cache never see entries the commit is about to evict. Holds the commit gate
+     * from before the commit until the events are published.
+     */
+    private static final class PendingEvents implements TransactionSynchronization {
+        private final StockEventJournal journal;
+        private final List<StockEvent> events = new ArrayList<>();
+        private boolean gated;
+
+        private PendingEvents(StockEventJournal journal) {
+            this.journal = journal;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            journal.commitGate.readLock().lock();
+            gated = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            if (!events.isEmpty()) {
+                journal.publish(events);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (gated) {
+                gated = false;
+                journal.commitGate.readLock().unlock();
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final long base;
+        private final MappedByteBuffer buffer;
+        private int size;
+        private volatile int sealedSize = -1;
+
+        private Segment(long base, MappedByteBuffer buffer) {
+            this.base = base;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.domain.Store;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.dto.NearbyStoresResponse;
+import com.challenge.meli.inventory.repository.StoreRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory KD-tree of store locations for nearest-store lookups. Stores are indexed as points
+ * on the unit sphere, where straight-line (chord) distance grows with great-circle distance, so
+ * the tree needs no special handling for the antimeridian or the poles.
+ * <p>
+ * The tree is immutable and swapped as a whole. It is built on first use and rebuilt lazily
+ * after the services that write stores call {@link #markStale()}.
+ */
+@Service
+public class StoreLocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreLocator.class);
+
+    static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final StoreRepository storeRepository;
+    private final InventoryService inventoryService;
+
+    private final Cache<String, StockView> stockViews;
+
+    private volatile Index index;
+    private volatile boolean stale = true;
+
+    public StoreLocator(StoreRepository storeRepository, InventoryService inventoryService,
+                        @Value("${inventory.cache.availability.maximum-size:10000}") Long maximumSize) {
+        this.storeRepository = storeRepository;
+        this.inventoryService = inventoryService;
+        this.stockViews = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Up to {@code limit} stores within {@code radiusKm} of the point that have the product
+     * available, nearest first. Stock comes from the (cached) availability of the product.
+     */
+    @Timed(value = "inventory.operation", extraTags = {"operation", "nearby"}, histogram = true)
+    public NearbyStoresResponse findNearby(String productId, double latitude, double longitude, double radiusKm, int limit) {
+        AvailabilitySnapshot snapshot = inventoryService.getVersionedAvailability(productId, null);
+        InventoryAvailabilityResponse availability = snapshot.response();
+        Map<String, InventoryAvailabilityResponse.StoreStockDto> stockByStore = inStock(productId, snapshot);
+
+        Index current = current();
+        List<NearbyStoresResponse.NearbyStoreDto> stores = new ArrayList<>(limit);
+        if (!stockByStore.isEmpty()) {
+            for (int point : current.nearest(latitude, longitude, radiusKm, limit,
+                    candidate -> stockByStore.containsKey(current.storeIds[candidate]))) {
+                InventoryAvailabilityResponse.StoreStockDto stock = stockByStore.get(current.storeIds[point]);
+                stores.add(new NearbyStoresResponse.NearbyStoreDto(stock.storeId(), stock.storeName(), stock.location(),
+                        current.distanceKm(point, latitude, longitude), stock.stock().available()));
+            }
+        }
+
+        InventoryAvailabilityResponse.MetadataDto metadata = new InventoryAvailabilityResponse.MetadataDto(
+                UUID.randomUUID().toString(), LocalDateTime.now(), availability.metadata().cacheHit());
+        return new NearbyStoresResponse(productId, stores, metadata);
+    }
+
+    /**
+     * Stores of the snapshot with stock, by storeId. Reused while the product's ETag is unchanged,
+     * so cache hits do not walk every store of the product.
+     */
+    private Map<String, InventoryAvailabilityResponse.StoreStockDto> inStock(String productId, AvailabilitySnapshot snapshot) {
+        StockView view = stockViews.getIfPresent(productId);
+        if (view != null && snapshot.etag() != null && snapshot.etag().equals(view.etag())) {
+            return view.stockByStore();
+        }
+        Map<String, InventoryAvailabilityResponse.StoreStockDto> stockByStore = new HashMap<>();
+        for (InventoryAvailabilityResponse.StoreStockDto store : snapshot.response().availability()) {
+            if (store.stock().available() > 0) {
+                stockByStore.put(store.storeId(), store);
+            }
+        }
+        if (snapshot.etag() != null) {
+            stockViews.put(productId, new StockView(snapshot.etag(), stockByStore));
+        }
+        return stockByStore;
+    }
+
+    /**
+     * Schedules a rebuild. Inside a transaction it takes effect after commit, so the rebuild
+     * reads the new rows.
+     */
+    public void markStale() {
+        stale = true;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stale = true;
+                }
+            });
+        }
+    }
+
+    private Index current() {
+        if (stale) {
+            synchronized (this) {
+                if (stale) {
+                    stale = false;
+                    index = new Index(storeRepository.findAll());
+                    logger.info("Store locator index rebuilt with {} stores", index.storeIds.length);
+                }
+            }
+        }
+        return index;
+    }
+
+    private record StockView(String etag, Map<String, InventoryAvailabilityResponse.StoreStockDto> stockByStore) {}
+
+    /**
+     * Points laid out as an implicit balanced KD-tree: the median of each range splits it on
+     * the axis {@code depth % 3}.
+     */
+    static final class Index {
+        private final String[] storeIds;
+        private final double[][] points;
+
+        Index(List<Store> stores) {
+            int size = stores.size();
+            storeIds = new String[size];
+            points = new double[size][];
+            for (int i = 0; i < size; i++) {
+                Store store = stores.get(i);
+                storeIds[i] = store.getStoreId();
+                points[i] = toPoint(store.getLatitude(), store.getLongitude());
+            }
+            build(0, size, 0);
+        }
+
+        /**
+         * Nearest points within the radius that match the filter, ordered by distance.
+         */
+        int[] nearest(double latitude, double longitude, double radiusKm, int limit, IntPredicate filter) {
+            double[] target = toPoint(latitude, longitude);
+            double maxChord = radiusKm >= Math.PI * EARTH_RADIUS_KM ? 2.0 : 2 * Math.sin(radiusKm / (2 * EARTH_RADIUS_KM));
+            // farthest candidate on top, so it is the one replaced
+            PriorityQueue<double[]> best = new PriorityQueue<>(Comparator.comparingDouble((double[] c) -> c[1]).reversed());
+            search(0, points.length, 0, target, maxChord * maxChord, limit, filter, best);
+
+            int[] result = new int[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = (int) best.poll()[0];
+            }
+            return result;
+        }
+
+        double distanceKm(int point, double latitude, double longitude) {
+            double chord = Math.sqrt(squaredDistance(points[point], toPoint(latitude, longitude)));
+            return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, chord / 2));
+        }
+
+        private void search(int lo, int hi, int depth, double[] target, double maxSquared, int limit,
+                            IntPredicate filter, PriorityQueue<double[]> best) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int axis = depth % 3;
+            double squared = squaredDistance(points[mid], target);
+            if (squared <= maxSquared && filter.test(mid)) {
+                if (best.size() < limit) {
+                    best.add(new double[]{mid, squared});
+                } else if (squared < best.peek()[1]) {
+                    best.poll();
+                    best.add(new double[]{mid, squared});
+                }
+            }
+
+            double delta = target[axis] - points[mid][axis];
+            boolean left = delta < 0;
+            search(left ? lo : mid + 1, left ? mid : hi, depth + 1, target, maxSquared, limit, filter, best);
+            double bound = best.size() < limit ? maxSquared : Math.min(maxSquared, best.peek()[1]);
+            if (delta * delta <= bound) {
+                search(left ? mid + 1 : lo, left ? hi : mid, depth + 1, target, maxSquared, limit, filter, best);
+            }
+        }
+
+        private void build(int lo, int hi, int depth) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, depth % 3);
+            build(lo, mid, depth + 1);
+            build(mid + 1, hi, depth + 1);
+        }
+
+        /**
+         * Quickselect: leaves the k-th point by {@code axis} at position k, smaller ones before it
+         * and larger ones after it.
+         */
+        private void select(int lo, int hi, int k, int axis) {
+            while (lo < hi) {
+                double pivot = points[(lo + hi) >>> 1][axis];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (points[i][axis] < pivot) {
+                        i++;
+                    }
+                    while (points[j][axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            double[] point = points[a];
+            points[a] = points[b];
+            points[b] = point;
+            String storeId = storeIds[a];
+            storeIds[a] = storeIds[b];
+            storeIds[b] = storeId;
+        }
+
+        private static double[] toPoint(double latitude, double longitude) {
+            double lat = Math.toRadians(latitude);
+            double lon = Math.toRadians(longitude);
+            return new double[]{Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+        }
+
+        private static double squaredDistance(double[] a, double[] b) {
+            double dx = a[0] - b[0];
+            double dy = a[1] - b[1];
+            double dz = a[2] - b[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+-- Schema as previously generated by Hibernate auto-DDL.
+
+CREATE TABLE product (
+    product_id  VARCHAR(255)  NOT NULL,
+    name        VARCHAR(255)  NOT NULL,
+    description VARCHAR(1000),
+    price       FLOAT(53)     NOT NULL,
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6),
+    PRIMARY KEY (product_id)
+);
+
+CREATE TABLE stores (
+    store_id   VARCHAR(255) NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    address    VARCHAR(255) NOT NULL,
+    latitude   FLOAT(53)    NOT NULL,
+    longitude  FLOAT(53)    NOT NULL,
+    created_at TIMESTAMP(6),
+    PRIMARY KEY (store_id)
+);
+
+CREATE TABLE inventory (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    product_id   VARCHAR(255) NOT NULL,
+    store_id     VARCHAR(255) NOT NULL,
+    available    INTEGER      NOT NULL,
+    reserved     INTEGER      NOT NULL,
+    total        INTEGER      NOT NULL,
+    bucket_count INTEGER      NOT NULL,
+    last_updated TIMESTAMP(6),
+    version      BIGINT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE inventory_buckets (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    product_id   VARCHAR(255) NOT NULL,
+    store_id     VARCHAR(255) NOT NULL,
+    bucket_index INTEGER      NOT NULL,
+    available    INTEGER      NOT NULL,
+    reserved     INTEGER      NOT NULL,
+    last_updated TIMESTAMP(6),
+    version      BIGINT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE reservations (
+    reservation_id    VARCHAR(255) NOT NULL,
+    product_id        VARCHAR(255) NOT NULL,
+    store_id          VARCHAR(255) NOT NULL,
+    customer_id       VARCHAR(255),
+    quantity          INTEGER      NOT NULL,
+    status            VARCHAR(16)  NOT NULL,
+    created_at        TIMESTAMP(6),
+    expires_at        TIMESTAMP(6),
+    confirmation_code VARCHAR(255),
+    bucket_index      INTEGER,
+    PRIMARY KEY (reservation_id),
+    CONSTRAINT ck_reservations_status CHECK (status IN ('ACTIVE', 'CANCELLED', 'CONFIRMED', 'EXPIRED'))
+);
@@ -0,0 +1,13 @@
+-- One row per (product, store): the key of every locked read and the batch lock order.
+ALTER TABLE inventory ADD CONSTRAINT uk_inventory_product_store UNIQUE (product_id, store_id);
+CREATE INDEX idx_inventory_store ON inventory (store_id);
+
+ALTER TABLE inventory_buckets ADD CONSTRAINT uk_inventory_buckets_row UNIQUE (product_id, store_id, bucket_index);
+
+-- Expiry sweeps and the expiry wheel rebuild (status = 'ACTIVE' [AND expires_at < ?]).
+CREATE INDEX idx_reservations_status_expires ON reservations (status, expires_at);
+-- Status reports by creation date.
+CREATE INDEX idx_reservations_status_created ON reservations (status, created_at);
+-- Active reservations of a row, bucket merges.
+CREATE INDEX idx_reservations_row_status ON reservations (product_id, store_id, status);
+CREATE INDEX idx_reservations_customer ON reservations (customer_id);
@@ -0,0 +1,13 @@
+-- Responses of writes sent with an Idempotency-Key (or an adjustment batchId), replayed on retries.
+CREATE TABLE idempotency_keys (
+    operation       VARCHAR(32)  NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    response_body   CLOB,
+    created_at      TIMESTAMP(6) NOT NULL,
+    expires_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (operation, idempotency_key)
+);
+
+-- Purge of expired keys.
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
@@ -0,0 +1,104 @@
+package com.challenge.meli.inventory.benchmark;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.Product;
+import com.challenge.meli.inventory.domain.Store;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ProductRepository;
+import com.challenge.meli.inventory.repository.StoreRepository;
+import com.challenge.meli.inventory.service.AvailabilityCache;
+import com.challenge.meli.inventory.service.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Batch availability against N sequential single-product calls (cache cleared each round).
+ * Run with {@code mvn test -Dbenchmarks=true -Dtest=BatchAvailabilityBenchmarkTest}.
+ */
+@SpringBootTest(classes = ChallengeApplication.class)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class BatchAvailabilityBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAvailabilityBenchmarkTest.class);
+
+    private static final int PRODUCTS = 300;
+    private static final int STORES = 20;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Test
+    void batchAvailabilityVersusSequentialCalls() {
+        List<String> productIds = seed();
+
+        long sequentialNanos = 0;
+        long batchNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            availabilityCache.clear();
+            long start = System.nanoTime();
+            for (String productId : productIds) {
+                inventoryService.getAvailability(productId, null);
+            }
+            sequentialNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Map<String, InventoryAvailabilityResponse> batch = inventoryService.getAvailability(productIds, null);
+            batchNanos += System.nanoTime() - start;
+
+            assertEquals(PRODUCTS, batch.size());
+            assertEquals(STORES, batch.get(productIds.get(0)).availability().size());
+        }
+
+        logger.info("products={} stores={} sequential={} ms batch={} ms speedup={}x", PRODUCTS, STORES,
+                String.format("%.1f", sequentialNanos / 1e6 / ROUNDS), String.format("%.1f", batchNanos / 1e6 / ROUNDS),
+                String.format("%.1f", (double) sequentialNanos / batchNanos));
+    }
+
+    private List<String> seed() {
+        List<Store> stores = new ArrayList<>();
+        for (int s = 0; s < STORES; s++) {
+            stores.add(new Store("BSTORE" + s, "Bench Store " + s, "Bench Street " + s, -33.4 - s * 0.01, -70.6));
+        }
+        storeRepository.saveAll(stores);
+
+        List<String> productIds = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<Inventory> inventories = new ArrayList<>();
+        for (int p = 0; p < PRODUCTS; p++) {
+            String productId = "BSKU" + p;
+            productIds.add(productId);
+            products.add(new Product(productId, "Bench product " + p, null, 10.0));
+            for (Store store : stores) {
+                inventories.add(new Inventory(productId, store.getStoreId(), 25));
+            }
+        }
+        productRepository.saveAll(products);
+        inventoryRepository.saveAll(inventories);
+        return productIds;
+    }
+}
@@ -0,0 +1,127 @@
+package com.challenge.meli.inventory.benchmark;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ReservationRepository;
+import com.challenge.meli.inventory.service.InventoryBucketService;
+import com.challenge.meli.inventory.service.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reservation throughput on a single hot SKU for increasing bucket counts.
+ * Run with {@code mvn test -Dbenchmarks=true -Dtest=StockBucketBenchmarkTest}.
+ */
+@SpringBootTest(classes = ChallengeApplication.class)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class StockBucketBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockBucketBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int STOCK = 5_000;
+    private static final int REQUESTS = 6_000;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryBucketService bucketService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    void reservationThroughputScalesWithBucketCount() throws Exception {
+        int[] bucketCounts = {1, 2, 4, 8, 16};
+        for (int i = 0; i < bucketCounts.length; i++) {
+            String productId = "SKU00" + (i + 1);
+            String storeId = "STORE001";
+            topUp(productId, storeId);
+            if (bucketCounts[i] > 1) {
+                bucketService.split(productId, storeId, bucketCounts[i]);
+            }
+
+            AtomicInteger reserved = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int r = 0; r < REQUESTS; r++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        ReservationRequest request = new ReservationRequest(productId, storeId, 1, "BENCH", 600, null);
+                        if (bucketService.isBucketed(productId, storeId)) {
+                            inventoryService.reserveFromBuckets(request);
+                        } else {
+                            inventoryService.reserveProduct(request);
+                        }
+                        reserved.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            executor.shutdown();
+
+            InventoryAvailabilityResponse.StockInfoDto stock = settledStock(productId, storeId);
+            logger.info("buckets={} reserved={} rejected={} failed={} throughput={} req/s",
+                    bucketCounts[i], reserved.get(), rejected.get(), failed.get(), Math.round(REQUESTS / seconds));
+
+            assertEquals(reserved.get(), stock.reserved());
+            assertEquals(stock.total() - reserved.get(), stock.available());
+        }
+    }
+
+    /**
+     * Resets the row to {@code STOCK} units. Its active reservations are dropped first, so
+     * reserved still matches them.
+     */
+    private void topUp(String productId, String storeId) {
+        reservationRepository.deleteAll(reservationRepository.findActiveReservationsByProductAndStore(productId, storeId));
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId(productId, storeId).orElseThrow();
+        inventory.setAvailable(STOCK);
+        inventory.setReserved(0);
+        inventory.setTotal(STOCK);
+        inventoryRepository.save(inventory);
+    }
+
+    /**
+     * Stock once the availability projection has caught up with every reservation.
+     */
+    private InventoryAvailabilityResponse.StockInfoDto settledStock(String productId, String storeId) throws InterruptedException {
+        InventoryAvailabilityResponse.StoreStockDto store = inventoryService.getAvailability(productId, storeId).availability().get(0);
+        while (!"HIGH".equals(store.confidence())) {
+            Thread.sleep(10);
+            store = inventoryService.getAvailability(productId, storeId).availability().get(0);
+        }
+        return store.stock();
+    }
+}
@@ -0,0 +1,109 @@
+package com.challenge.meli.inventory.config;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.exception.AdmissionRejectedException;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.service.InventoryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * With one permit and no queue allowed, a request-facing call is admitted while the permit is
+ * free and turned away while another request holds it. The same call from an application thread
+ * goes straight through.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = {
+        "inventory.admission.enabled=true", "inventory.admission.permits=1", "inventory.admission.max-queue=0"})
+class DatabaseAdmissionTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void requestThreadsAreAdmittedWhilePermitsAreFree() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        assertEquals(0, inventoryService.expireReservations("SKU001", "STORE001", List.of("RES-UNKNOWN")));
+    }
+
+    @Test
+    void requestThreadsAreRejectedWhenTheQueueIsFull() {
+        CompletableFuture<?> holder = transactionTemplate.execute(status -> {
+            // the row lock keeps the first request, and so the only permit, busy
+            inventoryRepository.findByProductIdAndStoreIdWithLock("SKU001", "STORE002").orElseThrow();
+            CompletableFuture<?> first = onRequestThread(() -> inventoryService.reserveProduct(
+                    new ReservationRequest("SKU001", "STORE002", 1, "ADMISSION-TEST", 600, null)));
+            awaitPermitInUse();
+
+            CompletionException rejected = assertThrows(CompletionException.class, onRequestThread(
+                    () -> inventoryService.expireReservations("SKU001", "STORE001", List.of("RES-UNKNOWN")))::join);
+            assertInstanceOf(AdmissionRejectedException.class, rejected.getCause());
+            return first;
+        });
+
+        assertNotNull(holder);
+        holder.join();
+    }
+
+    @Test
+    void internalCallersBypassAdmission() {
+        // a thread of the application's own, with no request bound to it
+        int expired = CompletableFuture.supplyAsync(
+                () -> inventoryService.expireReservations("SKU001", "STORE001", List.of("RES-UNKNOWN")),
+                runnable -> new Thread(runnable).start()).join();
+        assertEquals(0, expired);
+    }
+
+    private static <T> CompletableFuture<T> onRequestThread(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+            try {
+                return call.get();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        }, runnable -> new Thread(runnable).start());
+    }
+
+    private void awaitPermitInUse() {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.get("inventory.admission.in.use").gauge().value() < 1) {
+            assertTrue(System.currentTimeMillis() < deadline, "Permit not taken within 10 s");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+}
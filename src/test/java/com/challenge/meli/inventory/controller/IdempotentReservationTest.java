@@ -0,0 +1,104 @@
+package com.challenge.meli.inventory.controller;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A reservation retried with the same idempotency key is replayed rather than reserved again, and
+ * the key cannot be reused for a different request.
+ */
+@SpringBootTest(classes = ChallengeApplication.class)
+@AutoConfigureMockMvc
+@WithMockUser
+class IdempotentReservationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void retryReplaysTheOriginalReservation() throws Exception {
+        setStock("SKU002", "STORE004", 10);
+        String body = reservation("SKU002", "STORE004", 3);
+
+        MvcResult first = reserve("IDEMPOTENCY-REPLAY", body)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(InventoryController.IDEMPOTENT_REPLAYED))
+                .andReturn();
+        MvcResult retry = reserve("IDEMPOTENCY-REPLAY", body)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(InventoryController.IDEMPOTENT_REPLAYED, "true"))
+                .andReturn();
+
+        assertEquals(first.getResponse().getContentAsString(), retry.getResponse().getContentAsString());
+        assertEquals(Map.of("AVAILABLE", 7, "RESERVED", 3), row("SKU002", "STORE004"));
+        assertEquals(1, reservationsOf("IDEMPOTENCY-REPLAY"));
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() throws Exception {
+        setStock("SKU002", "STORE005", 10);
+
+        reserve("IDEMPOTENCY-REUSE", reservation("SKU002", "STORE005", 2))
+                .andExpect(status().isCreated());
+        reserve("IDEMPOTENCY-REUSE", reservation("SKU002", "STORE005", 5))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertEquals(Map.of("AVAILABLE", 8, "RESERVED", 2), row("SKU002", "STORE005"));
+        assertEquals(1, reservationsOf("IDEMPOTENCY-REUSE"));
+    }
+
+    private ResultActions reserve(String customerAndKey, String body) throws Exception {
+        return mockMvc.perform(post("/inventory/reserve").with(csrf())
+                .header(InventoryController.IDEMPOTENCY_KEY, customerAndKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.replace("CUSTOMER", customerAndKey)));
+    }
+
+    private void setStock(String productId, String storeId, int stock) {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId(productId, storeId).orElseThrow();
+        inventory.setAvailable(stock);
+        inventory.setReserved(0);
+        inventory.setTotal(stock);
+        inventoryRepository.save(inventory);
+    }
+
+    private Map<String, Object> row(String productId, String storeId) {
+        return jdbcTemplate.queryForMap("SELECT available, reserved FROM inventory WHERE product_id = ? AND store_id = ?",
+                productId, storeId);
+    }
+
+    private int reservationsOf(String customerId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations WHERE customer_id = ?", Integer.class, customerId);
+    }
+
+    private static String reservation(String productId, String storeId, int quantity) {
+        return """
+                {"productId": "%s", "storeId": "%s", "quantity": %d, "customerId": "CUSTOMER", "reservationTtl": 600}
+                """.formatted(productId, storeId, quantity);
+    }
+}
@@ -0,0 +1,216 @@
+package com.challenge.meli.inventory.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model HTTP load generator: requests are issued on an arrival schedule (Poisson or
+ * uniform) regardless of how fast earlier ones complete, and latency is measured from the
+ * scheduled start so queueing delay is not hidden. Arrivals beyond {@code maxInFlight}
+ * outstanding requests are dropped and counted. Requests that fail or time out are recorded
+ * with status {@code -1}; confirms and releases with no open reservation to act on are skipped.
+ */
+final class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final Supplier<LoadOperation> traffic;
+    private final int maxInFlight;
+
+    private final ConcurrentLinkedDeque<String> reservations = new ConcurrentLinkedDeque<>();
+    private final LongAdder appliedDelta = new LongAdder();
+    private final LongAdder uncertainDelta = new LongAdder();
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    LoadGenerator(URI baseUri, ObjectMapper objectMapper, Supplier<LoadOperation> traffic, int maxInFlight) {
+        this.baseUri = baseUri;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        this.objectMapper = objectMapper;
+        this.traffic = traffic;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Net stock delta the service reported as applied.
+     */
+    long appliedDelta() {
+        return appliedDelta.sum();
+    }
+
+    /**
+     * Sum of absolute deltas whose outcome is unknown (timeouts, 5xx): they may or may not
+     * have been committed.
+     */
+    long uncertainDelta() {
+        return uncertainDelta.sum();
+    }
+
+    Report run(double rate, Duration duration, boolean poisson) {
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long next = start;
+        List<CompletableFuture<Void>> pending = Collections.synchronizedList(new ArrayList<>());
+
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                dropped.increment();
+            } else {
+                inFlight.incrementAndGet();
+                CompletableFuture<Void> request = send(traffic.get(), next)
+                        .whenComplete((ignored, error) -> inFlight.decrementAndGet());
+                pending.add(request);
+            }
+            next += poisson
+                    ? (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * intervalNanos)
+                    : intervalNanos;
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, OperationReport> operations = new TreeMap<>();
+        stats.forEach((op, opStats) -> operations.put(op, opStats.report(seconds)));
+        long total = operations.values().stream().mapToLong(OperationReport::requests).sum();
+        long conflicts = operations.values().stream().mapToLong(report -> report.statuses().getOrDefault(409, 0L)).sum();
+        long serverErrors = operations.values().stream().mapToLong(OperationReport::serverErrors).sum();
+        return new Report(rate, seconds, total, total / seconds, dropped.sum(), skipped.sum(),
+                total == 0 ? 0 : (double) conflicts / total, total == 0 ? 0 : (double) serverErrors / total, operations);
+    }
+
+    private CompletableFuture<Void> send(LoadOperation operation, long scheduledAt) {
+        String op = operation.op();
+        String reservationId = null;
+        if ("confirm".equals(op) || "release".equals(op)) {
+            reservationId = reservations.pollFirst();
+            if (reservationId == null) {
+                skipped.increment();
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        HttpRequest request = switch (op) {
+            case "reserve" -> json("/inventory/reserve", "POST", Map.of("productId", operation.productId(),
+                    "storeId", operation.storeId(), "quantity", operation.quantity(), "customerId", "load-test"));
+            case "confirm" -> json("/inventory/confirm/" + reservationId, "POST", null);
+            case "release" -> request("/inventory/release/" + reservationId).DELETE().build();
+            case "adjust" -> json("/inventory/adjust", "PUT", Map.of("batchId", "LOAD-" + UUID.randomUUID(),
+                    "source", "LOAD_TEST", "adjustments", List.of(Map.of("productId", operation.productId(),
+                            "storeId", operation.storeId(), "delta", operation.delta(), "reason", "LOAD_TEST"))));
+            default -> request("/inventory/" + operation.productId()
+                    + "/availability?storeId=" + operation.storeId()).GET().build();
+        };
+
+        OperationStats opStats = stats.computeIfAbsent(op, ignored -> new OperationStats());
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenAccept(response -> {
+                    opStats.record(response.statusCode(), System.nanoTime() - scheduledAt);
+                    onResponse(op, operation, response);
+                })
+                .exceptionally(error -> {
+                    opStats.record(-1, System.nanoTime() - scheduledAt);
+                    if ("adjust".equals(op)) {
+                        uncertainDelta.add(Math.abs(operation.delta()));
+                    }
+                    return null;
+                });
+    }
+
+    private void onResponse(String op, LoadOperation operation, HttpResponse<String> response) {
+        try {
+            if ("reserve".equals(op) && response.statusCode() == 201) {
+                reservations.addLast(objectMapper.readTree(response.body()).path("reservationId").asText());
+            } else if ("adjust".equals(op) && response.statusCode() == 200) {
+                JsonNode result = objectMapper.readTree(response.body()).path("results").path(0);
+                if ("SUCCESS".equals(result.path("status").asText())) {
+                    appliedDelta.add(operation.delta());
+                }
+            } else if ("adjust".equals(op) && response.statusCode() >= 500) {
+                uncertainDelta.add(Math.abs(operation.delta()));
+            }
+        } catch (Exception ignored) {
+            // the status code has already been recorded
+        }
+    }
+
+    private HttpRequest json(String path, String method, Object body) {
+        try {
+            return request(path)
+                    .header("Content-Type", "application/json")
+                    .method(method, body == null
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private static final class OperationStats {
+        private final List<Long> latencies = new ArrayList<>();
+        private final Map<Integer, Long> statuses = new TreeMap<>();
+
+        private synchronized void record(int status, long latencyNanos) {
+            latencies.add(latencyNanos);
+            statuses.merge(status, 1L, Long::sum);
+        }
+
+        private synchronized OperationReport report(double seconds) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            long serverErrors = statuses.entrySet().stream()
+                    .filter(entry -> entry.getKey() >= 500 || entry.getKey() < 0)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            return new OperationReport(sorted.size(), sorted.size() / seconds, millis(sorted, 0.50),
+                    millis(sorted, 0.99), millis(sorted, 0.999), millis(sorted, 1.0), serverErrors, new TreeMap<>(statuses));
+        }
+
+        private static double millis(List<Long> sorted, double percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+        }
+    }
+
+    record OperationReport(long requests, double throughput, double p50Millis, double p99Millis, double p999Millis,
+                           double maxMillis, long serverErrors, Map<Integer, Long> statuses) {}
+
+    record Report(double targetRate, double seconds, long requests, double throughput, long dropped, long skipped,
+                  double conflictRate, double serverErrorRate, Map<String, OperationReport> operations) {}
+}
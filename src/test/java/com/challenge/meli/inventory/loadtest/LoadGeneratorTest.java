@@ -0,0 +1,174 @@
+package com.challenge.meli.inventory.loadtest;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.domain.Reservation;
+import com.challenge.meli.inventory.dto.StockAdjustmentRequest;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.challenge.meli.inventory.repository.ReservationRepository;
+import com.challenge.meli.inventory.service.InventoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load run against the application on a random port. Traffic is either replayed
+ * from an NDJSON file ({@code -Dloadtest.replay=path}, see {@link LoadOperation}) or drawn from
+ * a weighted synthetic mix, and issued at an open-model arrival rate. Prints latency
+ * percentiles, throughput and 409/5xx rates per operation, writes them to
+ * {@code target/loadtest-report.json}, and fails if any inventory row was oversold.
+ * <p>
+ * Run with {@code mvn test -Dloadtest=true -Dtest=LoadGeneratorTest}; tune with
+ * {@code -Dloadtest.rate=200 -Dloadtest.duration=30 -Dloadtest.arrivals=poisson
+ * -Dloadtest.mix=reserve=40,availability=40,confirm=8,release=7,adjust=5
+ * -Dloadtest.hot-fraction=0.5 -Dloadtest.stock=1000 -Dloadtest.max-in-flight=2000}.
+ * Application properties such as {@code -Dinventory.engine.mode=in-memory} pass through.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"logging.level.root=WARN", "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+                "logging.level.com.challenge.meli.inventory.loadtest=INFO"})
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@Import(LoadGeneratorTest.LoadTestSecurity.class)
+class LoadGeneratorTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGeneratorTest.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void replayTrafficWithoutOverselling() throws Exception {
+        int stock = Integer.getInteger("loadtest.stock", 1000);
+        List<String[]> rows = new ArrayList<>();
+        List<StockAdjustmentRequest.AdjustmentDto> topUps = new ArrayList<>();
+        long initialTotal = 0;
+        // nothing is reserved yet, so topping up available to the stock sets the total too
+        for (Inventory inventory : inventoryRepository.findAll()) {
+            topUps.add(new StockAdjustmentRequest.AdjustmentDto(inventory.getProductId(), inventory.getStoreId(),
+                    stock - inventory.getAvailable(), "LOADTEST", null, null));
+            rows.add(new String[]{inventory.getProductId(), inventory.getStoreId()});
+            initialTotal += stock;
+        }
+        inventoryService.adjustStock(new StockAdjustmentRequest(topUps, "LOADTEST-TOPUP", "LOADTEST"));
+        long confirmedBefore = confirmedQuantity();
+
+        String replay = System.getProperty("loadtest.replay");
+        Supplier<LoadOperation> traffic = replay != null
+                ? LoadOperation.replay(Path.of(replay), objectMapper)
+                : LoadOperation.synthetic(System.getProperty("loadtest.mix", "reserve=40,availability=40,confirm=8,release=7,adjust=5"),
+                        Double.parseDouble(System.getProperty("loadtest.hot-fraction", "0.5")), rows);
+
+        LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port), objectMapper, traffic,
+                Integer.getInteger("loadtest.max-in-flight", 2000));
+        LoadGenerator.Report report = generator.run(
+                Double.parseDouble(System.getProperty("loadtest.rate", "200")),
+                Duration.ofSeconds(Long.getLong("loadtest.duration", 30L)),
+                !"uniform".equals(System.getProperty("loadtest.arrivals", "poisson")));
+
+        print(report);
+        Path output = Path.of("target", "loadtest-report.json");
+        Files.createDirectories(output.getParent());
+        Files.write(output, objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(report));
+
+        assertNoOversell(initialTotal + generator.appliedDelta(), generator.uncertainDelta(),
+                confirmedQuantity() - confirmedBefore);
+    }
+
+    /**
+     * Every row keeps non-negative counters and a reserved count equal to its active
+     * reservations, and no unit was sold that was not stocked. Adjustments with an unknown
+     * outcome widen the tolerance of the last check by their absolute delta.
+     */
+    private void assertNoOversell(long stocked, long uncertain, long confirmed) {
+        Map<String, Long> activeByRow = new HashMap<>();
+        for (Reservation reservation : reservationRepository.findAll()) {
+            if (reservation.getStatus() == Reservation.ReservationStatus.ACTIVE) {
+                activeByRow.merge(reservation.getProductId() + ":" + reservation.getStoreId(),
+                        (long) reservation.getQuantity(), Long::sum);
+            }
+        }
+
+        long total = 0;
+        for (Inventory inventory : inventoryRepository.findAll()) {
+            String row = inventory.getProductId() + ":" + inventory.getStoreId();
+            assertTrue(inventory.getAvailable() >= 0, "Negative available stock for " + row);
+            assertTrue(inventory.getReserved() >= 0, "Negative reserved stock for " + row);
+            assertEquals(activeByRow.getOrDefault(row, 0L), (long) inventory.getReserved(),
+                    "Reserved stock does not match active reservations for " + row);
+            total += inventory.getAvailable() + inventory.getReserved();
+        }
+        long accounted = total + confirmed;
+        assertTrue(Math.abs(stocked - accounted) <= uncertain,
+                "Stock was sold or lost beyond what was stocked: stocked=" + stocked + " accounted=" + accounted
+                        + " uncertain=" + uncertain);
+    }
+
+    private long confirmedQuantity() {
+        return reservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getStatus() == Reservation.ReservationStatus.CONFIRMED)
+                .mapToLong(Reservation::getQuantity)
+                .sum();
+    }
+
+    private static void print(LoadGenerator.Report report) {
+        logger.info(String.format("target=%.0f req/s duration=%.1fs requests=%d throughput=%.0f req/s dropped=%d skipped=%d 409=%.2f%% 5xx=%.2f%%",
+                report.targetRate(), report.seconds(), report.requests(), report.throughput(), report.dropped(), report.skipped(),
+                report.conflictRate() * 100, report.serverErrorRate() * 100));
+        report.operations().forEach((op, stats) -> logger.info(String.format(
+                "%-12s requests=%7d throughput=%7.0f req/s p50=%7.2fms p99=%7.2fms p99.9=%7.2fms max=%7.2fms statuses=%s",
+                op, stats.requests(), stats.throughput(), stats.p50Millis(), stats.p99Millis(), stats.p999Millis(),
+                stats.maxMillis(), stats.statuses())));
+    }
+
+    @TestConfiguration
+    static class LoadTestSecurity {
+
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        SecurityFilterChain loadTestFilterChain(HttpSecurity http) throws Exception {
+            return http.securityMatcher("/inventory/**", "/error")
+                    .csrf(AbstractHttpConfigurer::disable)
+                    .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.challenge.meli.inventory.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * One request of a load run. {@code confirm} and {@code release} act on a reservation created
+ * earlier in the same run, so they carry no ids.
+ * <p>
+ * Replay files are NDJSON with one operation per line, e.g.
+ * {@code {"op":"reserve","productId":"SKU001","storeId":"STORE001","quantity":1}} or
+ * {@code {"op":"adjust","productId":"SKU001","storeId":"STORE001","delta":5}}.
+ */
+record LoadOperation(String op, String productId, String storeId, Integer quantity, Integer delta) {
+
+    static final List<String> OPERATIONS = List.of("reserve", "confirm", "release", "availability", "adjust");
+
+    /**
+     * Cycles through the operations of a replay file.
+     */
+    static Supplier<LoadOperation> replay(Path file, ObjectMapper objectMapper) {
+        List<LoadOperation> operations = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file)) {
+                if (!line.isBlank()) {
+                    operations.add(objectMapper.readValue(line, LoadOperation.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Replay file has no operations: " + file);
+        }
+        AtomicLong next = new AtomicLong();
+        return () -> operations.get((int) (next.getAndIncrement() % operations.size()));
+    }
+
+    /**
+     * Random operations weighted by {@code mix} (e.g. {@code reserve=40,availability=40,...}).
+     * A {@code hotFraction} of them target the first row; the rest are spread uniformly.
+     */
+    static Supplier<LoadOperation> synthetic(String mix, double hotFraction, List<String[]> rows) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (!OPERATIONS.contains(parts[0])) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + parts[0]);
+            }
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(totalWeight);
+            String op = null;
+            for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+                pick -= weight.getValue();
+                if (pick < 0) {
+                    op = weight.getKey();
+                    break;
+                }
+            }
+            String[] row = random.nextDouble() < hotFraction ? rows.get(0) : rows.get(random.nextInt(rows.size()));
+            return new LoadOperation(op, row[0], row[1], 1 + random.nextInt(2), random.nextInt(-2, 6));
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.challenge.meli.inventory.repository;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Reservation;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs every query method of {@link InventoryRepository} and {@link ReservationRepository},
+ * captures the SQL Hibernate sends and checks with {@code EXPLAIN} that no table is scanned.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.challenge.meli.inventory.repository.RepositoryQueryPlanTest$RecordingInspector")
+@Transactional
+class RepositoryQueryPlanTest {
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void inventoryQueriesUseIndexes() {
+        assertIndexed(() -> inventoryRepository.findByProductIdAndStoreIdWithLock("SKU001", "STORE001"));
+        assertIndexed(() -> inventoryRepository.findByProductIdAndStoreId("SKU001", "STORE001"));
+        assertIndexed(() -> inventoryRepository.findVersionsByProductId("SKU001"));
+        assertIndexed(() -> inventoryRepository.findVersionsByProductIdAndStoreId("SKU001", "STORE001"));
+        assertIndexed(() -> inventoryRepository.findAvailableQuantity("SKU001", "STORE001"));
+        assertIndexed(() -> inventoryRepository.findBucketCount("SKU001", "STORE001"));
+        assertIndexed(() -> inventoryRepository.findByStoreId("STORE001"));
+        assertIndexed(() -> inventoryRepository.findByProductId("SKU001"));
+        assertIndexed(() -> inventoryRepository.findAvailableByProductId("SKU001"));
+        assertIndexed(() -> inventoryRepository.findLowStockByStore("STORE001", 10));
+        assertIndexed(() -> inventoryRepository.findWithStoreByProductIds(List.of("SKU001", "SKU002")));
+        assertIndexed(() -> inventoryRepository.findWithStoreByProductIdsAndStoreIds(List.of("SKU001", "SKU002"), List.of("STORE001")));
+    }
+
+    @Test
+    void reservationQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        assertIndexed(() -> reservationRepository.findByCustomerId("customer"));
+        assertIndexed(() -> reservationRepository.findExpiredActiveReservations(now));
+        assertIndexed(() -> reservationRepository.findActiveExpirations());
+        assertIndexed(() -> reservationRepository.findActiveReservationsByProductAndStore("SKU001", "STORE001"));
+        assertIndexed(() -> reservationRepository.findByStatusAndDataRange(Reservation.ReservationStatus.ACTIVE, now.minusDays(1), now));
+        assertIndexed(() -> reservationRepository.clearBucketIndex("SKU001", "STORE001"));
+    }
+
+    private void assertIndexed(Runnable query) {
+        statements.clear();
+        query.run();
+        String sql = statements.isEmpty() ? null : statements.get(statements.size() - 1);
+        assertNotNull(sql, "No SQL captured");
+
+        String plan = jdbcTemplate.execute((java.sql.Connection connection) -> {
+            try (ResultSet rs = connection.prepareStatement("EXPLAIN " + sql).executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        });
+        assertFalse(plan.contains(".tableScan"), () -> "Full table scan in plan:\n" + plan);
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.dto.InventoryAvailabilityResponse;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A change not yet loaded by the projection is served with the previous stock, first with
+ * {@code MEDIUM} confidence, then {@code LOW} once older than {@code max-staleness-ms}, and with
+ * {@code HIGH} again once the next refresh pass has loaded it.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = {"inventory.projection.enabled=true",
+        "inventory.projection.refresh-ms=2000", "inventory.projection.max-staleness-ms=300"})
+class AvailabilityProjectionTest {
+
+    @Autowired
+    private AvailabilityProjection projection;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void pendingChangeLowersConfidenceUntilItIsLoaded() throws InterruptedException {
+        // once loaded and right after a pass, so the next one is a whole refresh interval away
+        awaitTrue(() -> projection.get("SKU005", "STORE005") != null);
+        inventoryService.releaseReservation(inventoryService.reserveProduct(
+                new ReservationRequest("SKU005", "STORE005", 1, "PROJECTION-TEST", 600, null)).reservationId());
+        awaitTrue(() -> "HIGH".equals(store().confidence()));
+        int available = store().stock().available();
+        long loaded = staleness().count();
+
+        inventoryService.reserveProduct(new ReservationRequest("SKU005", "STORE005", 2, "PROJECTION-TEST", 600, null));
+
+        InventoryAvailabilityResponse.StoreStockDto pending = store();
+        assertEquals("MEDIUM", pending.confidence());
+        assertEquals(available, pending.stock().available());
+        assertNotNull(pending.estimatedRefreshTime());
+        assertTrue(pending.estimatedRefreshTime().isAfter(LocalDateTime.now()));
+
+        Thread.sleep(500);
+        InventoryAvailabilityResponse.StoreStockDto stale = store();
+        assertEquals("LOW", stale.confidence());
+        assertEquals(available, stale.stock().available());
+
+        awaitTrue(() -> "HIGH".equals(store().confidence()));
+        assertEquals(available - 2, store().stock().available());
+        assertTrue(staleness().count() > loaded);
+        assertTrue(staleness().max(TimeUnit.MILLISECONDS) >= 500);
+    }
+
+    private InventoryAvailabilityResponse.StoreStockDto store() {
+        return projection.get("SKU005", "STORE005").response().availability().get(0);
+    }
+
+    private Timer staleness() {
+        return meterRegistry.get("inventory.projection.staleness").timer();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10 s");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.CartReservationRequest;
+import com.challenge.meli.inventory.dto.StockAdjustmentRequest;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Availability stream subscribers get the latest stock of a row once per burst of changes, and are
+ * dropped when the client goes away.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = "inventory.projection.enabled=true")
+@AutoConfigureMockMvc
+@WithMockUser
+class AvailabilityStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AvailabilityStream availabilityStream;
+
+    @Autowired
+    private AvailabilityProjection projection;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void burstOfChangesIsSentAsTheLatestStock() throws Exception {
+        setStock("SKU004", "STORE001", 10);
+        MvcResult stream = subscribe("SKU004", "STORE001");
+        awaitTrue(() -> available(stream).equals(List.of(10)));
+
+        // one commit, three stock events for the same row
+        inventoryService.reserveCart(new CartReservationRequest(List.of(
+                line("SKU004", "STORE001", 1), line("SKU004", "STORE001", 2), line("SKU004", "STORE001", 3)),
+                "STREAM-TEST", 600));
+
+        awaitTrue(() -> available(stream).contains(4));
+        Thread.sleep(300);
+        List<Integer> received = available(stream);
+        List<Integer> updates = received.subList(1, received.size());
+        assertTrue(updates.size() < 3, "Expected the changes to be coalesced, got " + updates);
+        updates.forEach(available -> assertEquals(4, available));
+    }
+
+    @Test
+    void disconnectedSubscriberIsDropped() throws Exception {
+        setStock("SKU004", "STORE002", 10);
+        int subscribers = availabilityStream.getSubscriberCount();
+        MvcResult stream = subscribe("SKU004", "STORE002");
+        awaitTrue(() -> available(stream).equals(List.of(10)));
+        assertEquals(subscribers + 1, availabilityStream.getSubscriberCount());
+
+        // what the container reports when the client closes the connection
+        MockAsyncContext asyncContext = (MockAsyncContext) stream.getRequest().getAsyncContext();
+        for (AsyncListener listener : List.copyOf(asyncContext.getListeners())) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+
+        awaitTrue(() -> availabilityStream.getSubscriberCount() == subscribers);
+    }
+
+    private MvcResult subscribe(String productId, String storeId) throws Exception {
+        return mockMvc.perform(get("/inventory/stream").param("productIds", productId).param("storeIds", storeId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    /**
+     * Adjusts the row's available stock to {@code stock} and waits until the projection, which the
+     * stream reads from, has it.
+     */
+    private void setStock(String productId, String storeId, int stock) throws InterruptedException {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId(productId, storeId).orElseThrow();
+        inventoryService.adjustStock(new StockAdjustmentRequest(List.of(new StockAdjustmentRequest.AdjustmentDto(
+                productId, storeId, stock - inventory.getAvailable(), "STREAM-TEST", null, null)),
+                "STREAM-TEST-" + storeId, "STREAM-TEST"));
+        awaitTrue(() -> Objects.equals(stock, projection.peekAvailable(productId, storeId)));
+    }
+
+    /**
+     * Available stock of every {@code stock} event received so far, in order.
+     */
+    private List<Integer> available(MvcResult stream) {
+        try {
+            String content = stream.getResponse().getContentAsString();
+            // the last event may still be being written
+            content = content.substring(0, Math.max(0, content.lastIndexOf("\n\n")));
+            List<Integer> available = new ArrayList<>();
+            for (String line : content.split("\n")) {
+                if (line.startsWith("data:")) {
+                    available.add(objectMapper.readTree(line.substring("data:".length())).path("stock").path("available").asInt());
+                }
+            }
+            return available;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CartReservationRequest.LineDto line(String productId, String storeId, int quantity) {
+        return new CartReservationRequest.LineDto(productId, storeId, quantity);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10 s");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.CartReservationRequest;
+import com.challenge.meli.inventory.dto.CartReservationResponse;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A cart is reserved as a whole: one line short of stock leaves every row, bucket and
+ * reservation as it was.
+ */
+@SpringBootTest(classes = ChallengeApplication.class)
+class CartReservationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryBucketService bucketService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everyLineIsReserved() {
+        setStock("SKU001", "STORE004", 5);
+        setStock("SKU001", "STORE005", 5);
+
+        CartReservationResponse response = inventoryService.reserveCart(new CartReservationRequest(List.of(
+                line("SKU001", "STORE005", 2), line("SKU001", "STORE004", 1), line("SKU001", "STORE005", 3)),
+                "CART-OK", 600));
+
+        assertEquals(List.of(2, 1, 3), response.reservations().stream().map(r -> r.quantity()).toList());
+        assertEquals(List.of(4, 1, 5), counters("SKU001", "STORE004"));
+        assertEquals(List.of(0, 5, 5), counters("SKU001", "STORE005"));
+        assertEquals(3, reservationsOf("CART-OK"));
+    }
+
+    @Test
+    void oneShortLineRollsBackTheWholeCart() {
+        setStock("SKU002", "STORE001", 10);
+        bucketService.split("SKU002", "STORE001", 2);
+        setStock("SKU002", "STORE002", 5);
+        setStock("SKU002", "STORE003", 1);
+        List<Integer> split = counters("SKU002", "STORE001");
+        List<Map<String, Object>> buckets = buckets("SKU002", "STORE001");
+
+        // the short line sorts last, after a split row and a plain row have been reserved
+        CartReservationRequest cart = new CartReservationRequest(List.of(
+                line("SKU002", "STORE003", 2), line("SKU002", "STORE001", 4), line("SKU002", "STORE002", 5)),
+                "CART-SHORT", 600);
+        assertThrows(InsufficientStockException.class, () -> inventoryService.reserveCart(cart));
+
+        assertEquals(split, counters("SKU002", "STORE001"));
+        assertEquals(buckets, buckets("SKU002", "STORE001"));
+        assertEquals(List.of(5, 0, 5), counters("SKU002", "STORE002"));
+        assertEquals(List.of(1, 0, 1), counters("SKU002", "STORE003"));
+        assertEquals(0, reservationsOf("CART-SHORT"));
+    }
+
+    private void setStock(String productId, String storeId, int stock) {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId(productId, storeId).orElseThrow();
+        inventory.setAvailable(stock);
+        inventory.setReserved(0);
+        inventory.setTotal(stock);
+        inventoryRepository.save(inventory);
+    }
+
+    private List<Integer> counters(String productId, String storeId) {
+        return jdbcTemplate.queryForObject("SELECT available, reserved, total FROM inventory WHERE product_id = ? AND store_id = ?",
+                (rs, rowNum) -> List.of(rs.getInt("available"), rs.getInt("reserved"), rs.getInt("total")), productId, storeId);
+    }
+
+    private List<Map<String, Object>> buckets(String productId, String storeId) {
+        return jdbcTemplate.queryForList("SELECT bucket_index, available, reserved FROM inventory_buckets " +
+                "WHERE product_id = ? AND store_id = ? ORDER BY bucket_index", productId, storeId);
+    }
+
+    private int reservationsOf(String customerId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations WHERE customer_id = ?", Integer.class, customerId);
+    }
+
+    private static CartReservationRequest.LineDto line(String productId, String storeId, int quantity) {
+        return new CartReservationRequest.LineDto(productId, storeId, quantity);
+    }
+}
@@ -0,0 +1,147 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.exception.ReservationNotActiveException;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Concurrent reserve/release/confirm with conditional UPDATEs: stock is never oversold and a
+ * reservation released and confirmed at the same time is settled only once. Split rows go
+ * through their buckets.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = "inventory.reservation.strategy=conditional")
+class ConditionalReservationTest {
+
+    private static final int STOCK = 100;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryBucketService bucketService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentReservationsNeverOversellAndSettleOnce() throws Exception {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId("SKU003", "STORE002").orElseThrow();
+        inventory.setAvailable(STOCK);
+        inventory.setReserved(0);
+        inventory.setTotal(STOCK);
+        inventoryRepository.save(inventory);
+
+        Queue<String> reservationIds = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        concurrently(3 * STOCK, i -> {
+            try {
+                reservationIds.add(inventoryService.reserveConditionally(
+                        new ReservationRequest("SKU003", "STORE002", 1, "CONDITIONAL-TEST", 600, null)).reservationId());
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, reservationIds.size());
+        assertEquals(2 * STOCK, rejected.get());
+        assertEquals(Map.of("AVAILABLE", 0, "RESERVED", STOCK, "TOTAL", STOCK), row());
+        assertEquals(STOCK, countReservations("ACTIVE"));
+
+        // every reservation is released and confirmed at the same time; only one of the two may win
+        List<String> ids = new ArrayList<>(reservationIds);
+        AtomicInteger settled = new AtomicInteger();
+        AtomicInteger notActive = new AtomicInteger();
+        concurrently(2 * ids.size(), i -> {
+            String reservationId = ids.get(i / 2);
+            try {
+                if (i % 2 == 0) {
+                    inventoryService.releaseConditionally(reservationId);
+                } else {
+                    inventoryService.confirmConditionally(reservationId);
+                }
+                settled.incrementAndGet();
+            } catch (ReservationNotActiveException e) {
+                notActive.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, settled.get());
+        assertEquals(STOCK, notActive.get());
+        int confirmed = countReservations("CONFIRMED");
+        int released = countReservations("CANCELLED");
+        assertEquals(STOCK, confirmed + released);
+        assertEquals(Map.of("AVAILABLE", released, "RESERVED", 0, "TOTAL", STOCK - confirmed), row());
+    }
+
+    @Test
+    void splitRowsAreReservedAndSettledThroughTheirBuckets() {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId("SKU002", "STORE003").orElseThrow();
+        inventory.setAvailable(10);
+        inventory.setReserved(0);
+        inventory.setTotal(10);
+        inventoryRepository.save(inventory);
+        bucketService.split("SKU002", "STORE003", 2);
+
+        String released = inventoryService.reserveConditionally(
+                new ReservationRequest("SKU002", "STORE003", 3, "CONDITIONAL-TEST", 600, null)).reservationId();
+        String confirmed = inventoryService.reserveConditionally(
+                new ReservationRequest("SKU002", "STORE003", 4, "CONDITIONAL-TEST", 600, null)).reservationId();
+        inventoryService.releaseConditionally(released);
+        inventoryService.confirmConditionally(confirmed);
+
+        assertThrows(ReservationNotActiveException.class, () -> inventoryService.releaseConditionally(confirmed));
+        assertEquals(Map.of("AVAILABLE", 6L, "RESERVED", 0L), jdbcTemplate.queryForMap(
+                "SELECT SUM(available) AS available, SUM(reserved) AS reserved FROM inventory_buckets " +
+                "WHERE product_id = 'SKU002' AND store_id = 'STORE003'"));
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap("SELECT available, reserved, total FROM inventory " +
+                "WHERE product_id = 'SKU003' AND store_id = 'STORE002'");
+    }
+
+    private int countReservations(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations " +
+                "WHERE product_id = 'SKU003' AND store_id = 'STORE002' AND status = ?", Integer.class, status);
+    }
+
+    private static void concurrently(int tasks, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> task.accept(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
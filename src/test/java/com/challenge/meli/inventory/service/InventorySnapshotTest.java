@@ -0,0 +1,100 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A snapshot plus the journal written after it restores the committed state into an empty
+ * database, and is never restored over existing data. Journal and snapshots live in directories
+ * of this test run only.
+ */
+@SpringBootTest(classes = ChallengeApplication.class)
+class InventorySnapshotTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @TempDir
+    static Path snapshotDirectory;
+
+    @DynamicPropertySource
+    static void snapshots(DynamicPropertyRegistry registry) {
+        registry.add("inventory.journal.enabled", () -> "true");
+        registry.add("inventory.journal.directory", () -> journalDirectory.toString());
+        registry.add("inventory.snapshot.enabled", () -> "true");
+        registry.add("inventory.snapshot.directory", () -> snapshotDirectory.toString());
+    }
+
+    @Autowired
+    private InventorySnapshot inventorySnapshot;
+
+    @Autowired
+    private StockEventJournal journal;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void snapshotAndJournalTailRestoreTheCommittedState() throws Exception {
+        String releasedLater = reserve("SKU003", "STORE004", 2);
+        long offset = inventorySnapshot.write();
+
+        // changes only the journal after the snapshot has
+        String active = reserve("SKU003", "STORE004", 3);
+        inventoryService.releaseReservation(releasedLater);
+        inventoryService.confirmReservation(reserve("SKU003", "STORE005", 2));
+        inventoryService.releaseReservation(reserve("SKU003", "STORE005", 1));
+        assertTrue(journal.getEndOffset() > offset);
+
+        List<Map<String, Object>> inventory = inventory();
+        List<Map<String, Object>> reservations = activeReservations();
+        assertTrue(reservations.stream().anyMatch(reservation -> active.equals(reservation.get("RESERVATION_ID"))));
+
+        assertEquals(Boolean.FALSE, transactionTemplate.execute(status -> inventorySnapshot.restore()));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List.of("reservations", "inventory_buckets", "inventory", "product", "stores")
+                    .forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+            assertTrue(inventorySnapshot.restore());
+        });
+
+        assertEquals(inventory, inventory());
+        assertEquals(reservations, activeReservations());
+    }
+
+    private String reserve(String productId, String storeId, int quantity) {
+        return inventoryService.reserveProduct(
+                new ReservationRequest(productId, storeId, quantity, "SNAPSHOT-TEST", 600, null)).reservationId();
+    }
+
+    private List<Map<String, Object>> inventory() {
+        return jdbcTemplate.queryForList("SELECT product_id, store_id, available, reserved, total FROM inventory " +
+                "ORDER BY product_id, store_id");
+    }
+
+    private List<Map<String, Object>> activeReservations() {
+        return jdbcTemplate.queryForList("SELECT reservation_id, product_id, store_id, quantity FROM reservations " +
+                "WHERE status = 'ACTIVE' ORDER BY reservation_id");
+    }
+}
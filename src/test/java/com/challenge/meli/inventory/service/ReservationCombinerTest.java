@@ -0,0 +1,111 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.CombinerStatsResponse;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.dto.ReservationResponse;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Requests for one row within the combiner window go out as one batch, applied in arrival order.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = {
+        "inventory.combiner.enabled=true", "inventory.combiner.window-ms=1000", "inventory.combiner.max-batch-size=4"})
+class ReservationCombinerTest {
+
+    @Autowired
+    private ReservationCombiner reservationCombiner;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    // one thread per caller, as each blocks until its batch commits
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+    @Test
+    void fullBatchIsDispatchedWithoutWaitingForTheWindow() {
+        setStock("SKU004", "STORE004", 10);
+        CombinerStatsResponse before = reservationCombiner.getStats();
+
+        List<CompletableFuture<ReservationResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> reservationCombiner.reserve(request("SKU004", "STORE004", 1)), callers));
+        }
+        results.forEach(CompletableFuture::join);
+
+        CombinerStatsResponse after = reservationCombiner.getStats();
+        assertEquals(1, after.batches() - before.batches());
+        assertEquals(4, after.requests() - before.requests());
+        assertEquals(6, inventoryRepository.findAvailableQuantity("SKU004", "STORE004").orElseThrow());
+    }
+
+    @Test
+    void batchIsAppliedInArrivalOrder() throws InterruptedException {
+        setStock("SKU004", "STORE005", 3);
+        CombinerStatsResponse before = reservationCombiner.getStats();
+
+        // each one queued before the next is sent, all inside the window
+        CompletableFuture<ReservationResponse> first = reserveAsync(2);
+        awaitWaiting(1);
+        CompletableFuture<ReservationResponse> second = reserveAsync(2);
+        awaitWaiting(2);
+        CompletableFuture<ReservationResponse> third = reserveAsync(1);
+
+        assertEquals(2, first.join().quantity());
+        CompletionException rejected = assertThrows(CompletionException.class, second::join);
+        assertInstanceOf(InsufficientStockException.class, rejected.getCause());
+        assertEquals(1, third.join().quantity());
+
+        CombinerStatsResponse after = reservationCombiner.getStats();
+        assertEquals(1, after.batches() - before.batches());
+        assertEquals(3, after.requests() - before.requests());
+        assertEquals(0, inventoryRepository.findAvailableQuantity("SKU004", "STORE005").orElseThrow());
+    }
+
+    @AfterEach
+    void shutdown() {
+        callers.shutdown();
+    }
+
+    private CompletableFuture<ReservationResponse> reserveAsync(int quantity) {
+        return CompletableFuture.supplyAsync(() -> reservationCombiner.reserve(request("SKU004", "STORE005", quantity)), callers);
+    }
+
+    private void awaitWaiting(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reservationCombiner.getWaitingCount("SKU004", "STORE005") < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "Request not queued within 10 s");
+            Thread.sleep(1);
+        }
+    }
+
+    private void setStock(String productId, String storeId, int stock) {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId(productId, storeId).orElseThrow();
+        inventory.setAvailable(stock);
+        inventory.setReserved(0);
+        inventory.setTotal(stock);
+        inventoryRepository.save(inventory);
+    }
+
+    private static ReservationRequest request(String productId, String storeId, int quantity) {
+        return new ReservationRequest(productId, storeId, quantity, "COMBINER-TEST", 600, null);
+    }
+}
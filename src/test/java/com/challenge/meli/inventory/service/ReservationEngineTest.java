@@ -0,0 +1,111 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent reserve/release/confirm through the in-memory engine, checked against the
+ * database as soon as the calls return.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = "inventory.engine.mode=in-memory")
+class ReservationEngineTest {
+
+    private static final int STOCK = 100;
+
+    @Autowired
+    private ReservationEngine reservationEngine;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentReservationsNeverOversellAndAreDurableOnReturn() throws Exception {
+        // the engine loads the row on first use, so this is the stock it starts from
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId("SKU003", "STORE003").orElseThrow();
+        inventory.setAvailable(STOCK);
+        inventory.setReserved(0);
+        inventory.setTotal(STOCK);
+        inventoryRepository.save(inventory);
+
+        Queue<String> reservationIds = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        concurrently(3 * STOCK, i -> {
+            try {
+                reservationIds.add(reservationEngine.reserve(
+                        new ReservationRequest("SKU003", "STORE003", 1, "ENGINE-TEST", 600, null)).reservationId());
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, reservationIds.size());
+        assertEquals(2 * STOCK, rejected.get());
+        assertEquals(Map.of("AVAILABLE", 0, "RESERVED", STOCK, "TOTAL", STOCK), row());
+        assertEquals(STOCK, countReservations("ACTIVE"));
+
+        // every other reservation is released, the rest confirmed
+        List<String> ids = new ArrayList<>(reservationIds);
+        concurrently(ids.size(), i -> {
+            if (i % 2 == 0) {
+                reservationEngine.releaseReservation(ids.get(i));
+            } else {
+                reservationEngine.confirmReservation(ids.get(i));
+            }
+        });
+
+        int confirmed = STOCK / 2;
+        assertEquals(Map.of("AVAILABLE", STOCK - confirmed, "RESERVED", 0, "TOTAL", STOCK - confirmed), row());
+        assertEquals(0, countReservations("ACTIVE"));
+        assertEquals(confirmed, countReservations("CONFIRMED"));
+        assertEquals(STOCK - confirmed, countReservations("CANCELLED"));
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap("SELECT available, reserved, total FROM inventory " +
+                "WHERE product_id = 'SKU003' AND store_id = 'STORE003'");
+    }
+
+    private int countReservations(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations " +
+                "WHERE product_id = 'SKU003' AND store_id = 'STORE003' AND status = ?", Integer.class, status);
+    }
+
+    private static void concurrently(int tasks, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> task.accept(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
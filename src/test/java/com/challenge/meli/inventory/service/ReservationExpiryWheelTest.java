@@ -0,0 +1,97 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.Inventory;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reservations are released by the timing wheel shortly after they expire, long before the
+ * periodic sweep, and a batch whose release fails is retried.
+ */
+@SpringBootTest(classes = ChallengeApplication.class, properties = "inventory.expiry.retry-delay-ms=200")
+class ReservationExpiryWheelTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void expiredReservationIsReleasedByTheWheel() throws InterruptedException {
+        setStock("SKU005", "STORE001", 10);
+        String reservationId = inventoryService.reserveProduct(
+                new ReservationRequest("SKU005", "STORE001", 3, "EXPIRY-TEST", 1, null)).reservationId();
+
+        awaitTrue(() -> "EXPIRED".equals(status(reservationId)));
+        assertEquals(Map.of("AVAILABLE", 10, "RESERVED", 0), row("SKU005", "STORE001"));
+    }
+
+    @Test
+    void failedExpiryBatchIsRetried() throws InterruptedException {
+        setStock("SKU005", "STORE002", 10);
+        String reservationId = inventoryService.reserveProduct(
+                new ReservationRequest("SKU005", "STORE002", 2, "EXPIRY-TEST", 1, null)).reservationId();
+        double failures = failures();
+
+        // with nothing reserved on the row, releasing the reservation fails
+        jdbcTemplate.update("UPDATE inventory SET reserved = 0 WHERE product_id = 'SKU005' AND store_id = 'STORE002'");
+        awaitTrue(() -> failures() > failures);
+        assertEquals("ACTIVE", status(reservationId));
+
+        jdbcTemplate.update("UPDATE inventory SET reserved = 2 WHERE product_id = 'SKU005' AND store_id = 'STORE002'");
+        awaitTrue(() -> "EXPIRED".equals(status(reservationId)));
+        assertEquals(Map.of("AVAILABLE", 10, "RESERVED", 0), row("SKU005", "STORE002"));
+    }
+
+    private void setStock(String productId, String storeId, int stock) {
+        Inventory inventory = inventoryRepository.findByProductIdAndStoreId(productId, storeId).orElseThrow();
+        inventory.setAvailable(stock);
+        inventory.setReserved(0);
+        inventory.setTotal(stock);
+        inventoryRepository.save(inventory);
+    }
+
+    private double failures() {
+        return meterRegistry.counter("inventory.expiry.failures").count();
+    }
+
+    private String status(String reservationId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM reservations WHERE reservation_id = ?",
+                String.class, reservationId);
+    }
+
+    private Map<String, Object> row(String productId, String storeId) {
+        return jdbcTemplate.queryForMap("SELECT available, reserved FROM inventory WHERE product_id = ? AND store_id = ?",
+                productId, storeId);
+    }
+
+    /**
+     * Polls for up to 10 s: TTLs are whole seconds, the wheel ticks every 100 ms.
+     */
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10 s");
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.challenge.meli.inventory.service;
+
+import com.challenge.meli.inventory.ChallengeApplication;
+import com.challenge.meli.inventory.domain.StockEvent;
+import com.challenge.meli.inventory.dto.ReservationRequest;
+import com.challenge.meli.inventory.dto.StockEventPage;
+import com.challenge.meli.inventory.exception.InsufficientStockException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Committed changes reach the journal, rolled back ones do not. The journal lives in a directory
+ * of this test run only.
+ */
+@SpringBootTest(classes = ChallengeApplication.class)
+class StockEventJournalTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("inventory.journal.enabled", () -> "true");
+        registry.add("inventory.journal.directory", () -> journalDirectory.toString());
+    }
+
+    @Autowired
+    private StockEventJournal journal;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Test
+    void onlyCommittedChangesAreJournaled() {
+        long start = journal.read(0, Integer.MAX_VALUE, 0).endOffset();
+
+        String reservationId = inventoryService.reserveProduct(
+                new ReservationRequest("SKU003", "STORE001", 1, "JOURNAL-TEST", 600, null)).reservationId();
+        assertThrows(InsufficientStockException.class, () -> inventoryService.reserveProduct(
+                new ReservationRequest("SKU003", "STORE001", 1_000_000, "JOURNAL-TEST", 600, null)));
+        inventoryService.releaseReservation(reservationId);
+
+        StockEventPage page = journal.read(start, 100, 0);
+        List<StockEvent> events = page.events().stream().map(StockEventPage.EntryDto::event).toList();
+        assertEquals(List.of(StockEvent.Type.RESERVE, StockEvent.Type.RELEASE),
+                events.stream().map(StockEvent::type).toList());
+        events.forEach(event -> assertEquals(reservationId, event.reference()));
+        assertEquals(page.endOffset(), page.nextOffset());
+    }
+}